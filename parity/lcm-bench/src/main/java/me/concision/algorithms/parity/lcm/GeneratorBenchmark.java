@@ -0,0 +1,166 @@
+package me.concision.algorithms.parity.lcm;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Phases of {@link LcmParitySourceGenerator} at smaller limits, independent of the built {@link Parity#LIMIT}: sieving
+ * the prime-powers, the pipelined sieve into leaf products, multiplying a product, and writing the shard classes of a
+ * product. A single product of all prime-powers is multiplied and written, as the limits fit into a single product.
+ * Declared in the generator package, as the generator classes are package-private.
+ *
+ * @author Concision
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GeneratorBenchmark {
+    /**
+     * Sieve segment size of the generator
+     */
+    private static final int SEGMENT_BYTES = 256 * 1024;
+
+    /**
+     * Sequentially multiplied subtree bit length of the generator
+     */
+    private static final long SEQUENTIAL_BITS = 1 << 20;
+
+    /**
+     * String literals per shard class of the generator
+     */
+    private static final int SHARD_LITERALS = 128;
+
+    /**
+     * Number of pipeline multiplication workers
+     */
+    private static final int WORKERS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Multiplication backend of the generator
+     */
+    private static final Multiplier MULTIPLIER = Multiplier.threshold(Multiplier.named("karatsuba"), Multiplier.named("ntt"), 1 << 18);
+
+    /**
+     * LCM limit of the generated table
+     */
+    @Param({"1000000", "10000000", "100000000"})
+    public int limit;
+
+    /**
+     * Sorted prime-powers up to the limit
+     */
+    private int[] primePowers;
+
+    /**
+     * {@link java.math.BigInteger#toByteArray()} bytes of the product of the prime-powers
+     */
+    private ByteBuffer product;
+
+    /**
+     * Factors of the next product tree, which releases them as it multiplies
+     */
+    private int[] factors;
+
+    @Setup
+    public void setUp() {
+        this.primePowers = new SegmentedSieve(1, this.limit, SEGMENT_BYTES).primePowers();
+        Arrays.parallelSort(this.primePowers);
+
+        Natural product = new ProductTree(this.primePowers.clone(), SEQUENTIAL_BITS, MULTIPLIER).product();
+        this.product = ByteBuffer.wrap(product.toBigInteger().toByteArray());
+        product.release();
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        this.factors = this.primePowers.clone();
+    }
+
+    @Benchmark
+    public int[] sieve() {
+        return new SegmentedSieve(1, this.limit, SEGMENT_BYTES).primePowers();
+    }
+
+    @Benchmark
+    public Natural[] leaves() throws InterruptedException {
+        return new PrimePowerPipeline(new SegmentedSieve(1, this.limit, SEGMENT_BYTES), WORKERS, 2 * WORKERS, MULTIPLIER).leaves();
+    }
+
+    @Benchmark
+    public long products() {
+        Natural product = new ProductTree(this.factors, SEQUENTIAL_BITS, MULTIPLIER).product();
+        long bitLength = product.bitLength();
+        product.release();
+        return bitLength;
+    }
+
+    @Benchmark
+    public long write() throws IOException {
+        ProductEncoder encoder = new ProductEncoder(this.product.duplicate());
+        DiscardingChannel channel = new DiscardingChannel();
+        for (int from = 0, shard = 0; from < encoder.literals(); from += SHARD_LITERALS, shard++) {
+            ShardClassWriter.write(channel, getClass().getPackage().getName() + ".ParityShard" + shard, encoder, from, Math.min(from + SHARD_LITERALS, encoder.literals()));
+        }
+        return channel.written;
+    }
+
+    /**
+     * Channel that counts and discards the written bytes, such that writing is not bound by the file system
+     */
+    private static final class DiscardingChannel implements GatheringByteChannel {
+        /**
+         * Number of written bytes
+         */
+        private long written;
+
+        @Override
+        public int write(ByteBuffer source) {
+            int remaining = source.remaining();
+            source.position(source.limit());
+            this.written += remaining;
+            return remaining;
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources, int offset, int length) {
+            long written = 0;
+            for (int i = offset; i < offset + length; i++) {
+                written += this.write(sources[i]);
+            }
+            return written;
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources) {
+            return this.write(sources, 0, sources.length);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
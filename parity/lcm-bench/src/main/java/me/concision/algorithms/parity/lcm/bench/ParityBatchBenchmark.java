@@ -0,0 +1,93 @@
+package me.concision.algorithms.parity.lcm.bench;
+
+import me.concision.algorithms.parity.lcm.Parity;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of batch {@link Parity} queries against the loaded table of the built {@link Parity#LIMIT}, for batch
+ * sizes from a single value to 10^6 values. Besides batches per second, the "values" counter reports the number of
+ * classified values per second, which is comparable across batch sizes.
+ *
+ * @author Concision
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParityBatchBenchmark {
+    /**
+     * Number of values of each batch
+     */
+    @Param({"1", "16", "1024", "65536", "1000000"})
+    public int batch;
+
+    /**
+     * Queried batch, of integers up to the {@link Parity#LIMIT}
+     */
+    private int[] values;
+
+    /**
+     * Queried batch as long integers
+     */
+    private long[] longValues;
+
+    @Setup
+    public void setUp() {
+        Parity.load();
+
+        // a fixed seed, such that runs are comparable
+        Random random = new Random(this.batch);
+        this.values = new int[this.batch];
+        this.longValues = new long[this.batch];
+        for (int i = 0; i < this.batch; i++) {
+            this.values[i] = 1 + random.nextInt(Parity.LIMIT);
+            this.longValues[i] = this.values[i];
+        }
+    }
+
+    @Benchmark
+    public boolean[] isOdd(Values values) {
+        values.values += this.batch;
+        return Parity.isOdd(this.values);
+    }
+
+    @Benchmark
+    public boolean[] isEven(Values values) {
+        values.values += this.batch;
+        return Parity.isEven(this.longValues);
+    }
+
+    /**
+     * Number of classified values, reported per second
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Values {
+        /**
+         * Classified values of the current iteration
+         */
+        public long values;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.values = 0;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package me.concision.algorithms.parity.lcm.bench;
+
+import me.concision.algorithms.parity.lcm.Parity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold initialization of {@link Parity}, i.e. its static initializer followed by {@link Parity#load()}. Each
+ * invocation loads the generated classes into a new class loader, such that the products are decoded or mapped anew.
+ * With "mapped" storage, the shared product file is created by the first invocation and mapped by the following ones.
+ * <p>
+ * The dedicated chunk executor that an invocation may create is shut down once it completes; otherwise, its threads
+ * would keep the class loader, and thereby the products, of every invocation alive.
+ *
+ * @author Concision
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ParityLoadBenchmark {
+    /**
+     * Product storage of {@link Parity}; either "heap" or "mapped"
+     */
+    @Param({"heap", "mapped"})
+    public String storage;
+
+    /**
+     * Class loader of the generated classes of the current invocation
+     */
+    private URLClassLoader loader;
+
+    /**
+     * {@link Parity#load()} of the current invocation
+     */
+    private Method load;
+
+    @Setup(Level.Invocation)
+    public void setUp() throws ReflectiveOperationException {
+        System.setProperty("parity.storage", this.storage);
+
+        // the generated classes only depend on the Java runtime
+        URL location = Parity.class.getProtectionDomain().getCodeSource().getLocation();
+        this.loader = new URLClassLoader(new URL[]{location}, null);
+        this.load = Class.forName(Parity.class.getName(), false, this.loader).getMethod("load");
+    }
+
+    @Benchmark
+    public void load() throws ReflectiveOperationException {
+        this.load.invoke(null);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() throws IOException, ReflectiveOperationException, InterruptedException {
+        Field field = this.load.getDeclaringClass().getDeclaredField("executor");
+        field.setAccessible(true);
+        Object executor = field.get(null);
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+            if (!((ExecutorService) executor).awaitTermination(1, TimeUnit.MINUTES)) {
+                throw new IllegalStateException("chunk executor did not terminate");
+            }
+        }
+        this.loader.close();
+    }
+}
@@ -0,0 +1,104 @@
+package me.concision.algorithms.parity.lcm.bench;
+
+import me.concision.algorithms.parity.lcm.Parity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency and throughput of single {@link Parity} queries against the loaded table of the built {@link Parity#LIMIT},
+ * for inputs of different magnitudes. Contended variants query from all available processors at once, which compete
+ * for the executor that reduces chunks of large products.
+ *
+ * @author Concision
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParityQueryBenchmark {
+    /**
+     * Number of distinct inputs that are queried in turn; a power of 2
+     */
+    private static final int INPUTS = 1 << 10;
+
+    /**
+     * Input magnitude; "small" for integers below 2^8, "sqrt" for integers near sqrt(LIMIT), whose prime-powers may
+     * have exponents larger than 1, or "limit" for integers near the LIMIT
+     */
+    @Param({"small", "sqrt", "limit"})
+    public String magnitude;
+
+    /**
+     * Queried inputs
+     */
+    private int[] inputs;
+
+    /**
+     * Index of the next input
+     */
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Parity.load();
+
+        // a fixed seed, such that runs are comparable
+        Random random = new Random(INPUTS);
+        int upper;
+        switch (this.magnitude) {
+            case "small":
+                upper = Math.min((1 << 8) - 1, Parity.LIMIT);
+                break;
+            case "sqrt":
+                upper = (int) Math.sqrt(Parity.LIMIT);
+                break;
+            case "limit":
+                upper = Parity.LIMIT;
+                break;
+            default:
+                throw new IllegalArgumentException("unknown magnitude: " + this.magnitude);
+        }
+        // integers in (upper / 2, upper]
+        this.inputs = new int[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            this.inputs[i] = upper - random.nextInt(Math.max(1, upper / 2));
+        }
+    }
+
+    @Benchmark
+    public boolean isOdd() {
+        return Parity.isOdd(this.inputs[this.next++ & INPUTS - 1]);
+    }
+
+    @Benchmark
+    public boolean isEven() {
+        return Parity.isEven(this.inputs[this.next++ & INPUTS - 1]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean isOddContended() {
+        return Parity.isOdd(this.inputs[this.next++ & INPUTS - 1]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean isEvenContended() {
+        return Parity.isEven(this.inputs[this.next++ & INPUTS - 1]);
+    }
+}
@@ -0,0 +1,22 @@
+package me.concision.algorithms.parity.lcm;
+
+import java.math.BigInteger;
+
+/**
+ * Multiplication backend that delegates to {@link BigInteger#multiply(BigInteger)}, which uses schoolbook,
+ * Karatsuba, or Toom-Cook 3 multiplication on a single thread depending on the operand sizes. {@link Natural}s are
+ * converted to and from {@link BigInteger}s for every multiplication.
+ *
+ * @author Concision
+ */
+public final class BigIntegerMultiplier implements Multiplier {
+    /**
+     * Stateless shared instance
+     */
+    public static final BigIntegerMultiplier INSTANCE = new BigIntegerMultiplier();
+
+    @Override
+    public BigInteger multiply(BigInteger a, BigInteger b) {
+        return a.multiply(b);
+    }
+}
@@ -0,0 +1,403 @@
+package me.concision.algorithms.parity.lcm;
+
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk checkpoints of an interrupted product computation, such that a rerun resumes where it left off instead of
+ * sieving and multiplying from scratch. The sieve result (prime-powers or leaf products) is checkpointed once it is
+ * computed, and every product tree subtree of at least a minimum size is checkpointed once it is multiplied; a rerun
+ * restores the largest checkpointed subtrees instead of multiplying them. Once a subtree is checkpointed, the
+ * checkpoints of its children are deleted.
+ * <p>
+ * Each checkpoint file holds a sequence of int arrays, and is written to a temporary file that is then moved into
+ * place, such that an interrupted write never leaves a partial checkpoint. All values are big-endian:
+ * <pre>
+ * int  magic "LCMK"
+ * int  format version
+ * int  CRC-32 of the computation key; checkpoints of other computations are discarded
+ * int  number of arrays
+ * int  length of each array
+ * int  elements of each array
+ * int  CRC-32 of all preceding bytes
+ * </pre>
+ *
+ * @author Concision
+ */
+@Log4j2
+final class Checkpoints {
+    /**
+     * File magic; "LCMK" in ASCII
+     */
+    private static final int MAGIC = 0x4C434D4B;
+
+    /**
+     * Current format version; files of other versions are discarded
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Size of the direct buffer that arrays are transferred through
+     */
+    private static final int TRANSFER_BYTES = 1024 * 1024 /* 1MB */;
+
+    /**
+     * Checkpoint directory
+     */
+    private final File directory;
+
+    /**
+     * CRC-32 of the computation key
+     */
+    private final int key;
+
+    /**
+     * Subtrees with a total bit length of at least this many bits are checkpointed
+     */
+    private final long minimumBits;
+
+    /**
+     * Constructs checkpoints of a computation
+     *
+     * @param directory   checkpoint directory
+     * @param key         computation key; identifies all inputs that determine the checkpointed values
+     * @param minimumBits subtrees with a total bit length of at least this many bits are checkpointed
+     */
+    Checkpoints(@NonNull File directory, @NonNull String key, long minimumBits) {
+        this.directory = directory;
+        CRC32 crc = new CRC32();
+        crc.update(key.getBytes(StandardCharsets.UTF_8));
+        this.key = (int) crc.getValue();
+        this.minimumBits = minimumBits;
+    }
+
+    /**
+     * Reads the checkpointed prime-powers of the sieve
+     *
+     * @return prime-powers, or null if not checkpointed
+     */
+    int[] readPrimePowers() {
+        int[][] arrays = this.read("sieve");
+        return arrays == null ? null : arrays[0];
+    }
+
+    /**
+     * Checkpoints the prime-powers of the sieve
+     *
+     * @param primePowers prime-powers
+     */
+    void writePrimePowers(@NonNull int[] primePowers) {
+        this.write("sieve", new int[][]{primePowers}, new int[]{primePowers.length});
+    }
+
+    /**
+     * Reads the checkpointed leaf products of the sieve
+     *
+     * @return leaf products, or null if not checkpointed
+     */
+    Natural[] readLeaves() {
+        int[][] arrays = this.read("leaves");
+        if (arrays == null) return null;
+
+        Natural[] leaves = new Natural[arrays.length];
+        for (int i = 0; i < leaves.length; i++) {
+            leaves[i] = natural(arrays[i]);
+            // release limbs to be garbage collected while the remaining leaves are copied
+            arrays[i] = null;
+        }
+        return leaves;
+    }
+
+    /**
+     * Checkpoints the leaf products of the sieve
+     *
+     * @param leaves leaf products
+     */
+    void writeLeaves(@NonNull Natural[] leaves) {
+        int[][] arrays = new int[leaves.length][];
+        int[] lengths = new int[leaves.length];
+        for (int i = 0; i < leaves.length; i++) {
+            arrays[i] = leaves[i].limbs;
+            lengths[i] = leaves[i].length;
+        }
+        this.write("leaves", arrays, lengths);
+    }
+
+    /**
+     * Creates the subtree checkpoints of a product tree
+     *
+     * @param product product index
+     * @return subtree checkpoints
+     */
+    Tree tree(int product) {
+        return new Tree(product);
+    }
+
+    /**
+     * Deletes all checkpoints, e.g. once the computation is complete
+     */
+    void delete() {
+        File[] files = this.directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        this.directory.delete();
+    }
+
+    /**
+     * Reads a checkpoint; unreadable checkpoints, and checkpoints of other computations, are deleted
+     *
+     * @param name checkpoint name
+     * @return checkpointed arrays, or null if there is no usable checkpoint
+     */
+    private int[][] read(String name) {
+        Path path = this.file(name).toPath();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(TRANSFER_BYTES);
+            CRC32 crc = new CRC32();
+
+            read(channel, buffer, 4 * Integer.BYTES, crc);
+            if (buffer.getInt() != MAGIC) throw new IOException("not a checkpoint file");
+            if (buffer.getInt() != VERSION || buffer.getInt() != this.key) {
+                log.info("Discarding checkpoint of another computation: {}", path);
+                Files.deleteIfExists(path);
+                return null;
+            }
+            int count = buffer.getInt();
+            if (count < 0 || channel.size() / Integer.BYTES < count) throw new IOException("invalid array count: " + count);
+
+            int[][] arrays = new int[count][];
+            long total = 0;
+            for (int i = 0; i < count; i++) {
+                if (buffer.remaining() < Integer.BYTES) read(channel, buffer, Math.min(count - i, TRANSFER_BYTES / Integer.BYTES) * Integer.BYTES, crc);
+                int length = buffer.getInt();
+                total += length;
+                if (length < 0 || channel.size() / Integer.BYTES < total) throw new IOException("array " + i + " exceeds the file; truncated file?");
+                arrays[i] = new int[length];
+            }
+            for (int[] array : arrays) {
+                for (int position = 0; position < array.length; ) {
+                    if (!buffer.hasRemaining()) read(channel, buffer, Math.min(array.length - position, TRANSFER_BYTES / Integer.BYTES) * Integer.BYTES, crc);
+                    IntBuffer ints = buffer.asIntBuffer();
+                    int length = Math.min(ints.remaining(), array.length - position);
+                    ints.get(array, position, length);
+                    buffer.position(buffer.position() + length * Integer.BYTES);
+                    position += length;
+                }
+            }
+            int checksum = (int) crc.getValue();
+            read(channel, buffer, Integer.BYTES, null);
+            if (buffer.getInt() != checksum) throw new IOException("checksum mismatch");
+            return arrays;
+        } catch (NoSuchFileException exception) {
+            return null;
+        } catch (IOException exception) {
+            log.warn("Discarding invalid checkpoint: {}", path, exception);
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ignored) {
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Reads the next bytes of a file into a buffer
+     *
+     * @param channel file channel
+     * @param buffer  buffer to read into; cleared, and flipped for reading once read
+     * @param length  number of bytes to read
+     * @param crc     checksum to update with the read bytes, or null
+     * @throws IOException if the file ends before the bytes
+     */
+    private static void read(FileChannel channel, ByteBuffer buffer, int length, CRC32 crc) throws IOException {
+        buffer.clear().limit(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) throw new EOFException("unexpected end of file; truncated file?");
+        }
+        buffer.flip();
+        if (crc != null) {
+            crc.update(buffer.duplicate());
+        }
+    }
+
+    /**
+     * Writes a checkpoint, replacing any existing checkpoint of the same name once it is fully written. Checkpoints
+     * are best-effort; a failure is logged, and the computation continues without the checkpoint.
+     *
+     * @param name    checkpoint name
+     * @param arrays  arrays to write
+     * @param lengths number of elements of each array to write
+     */
+    private void write(String name, int[][] arrays, int[] lengths) {
+        //noinspection ResultOfMethodCallIgnored
+        this.directory.mkdirs();
+        Path target = this.file(name).toPath();
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(TRANSFER_BYTES);
+                CRC32 crc = new CRC32();
+
+                buffer.putInt(MAGIC).putInt(VERSION).putInt(this.key).putInt(arrays.length);
+                for (int length : lengths) {
+                    if (!buffer.hasRemaining()) write(channel, buffer, crc);
+                    buffer.putInt(length);
+                }
+                for (int i = 0; i < arrays.length; i++) {
+                    for (int position = 0; position < lengths[i]; ) {
+                        if (!buffer.hasRemaining()) write(channel, buffer, crc);
+                        int length = Math.min(buffer.remaining() / Integer.BYTES, lengths[i] - position);
+                        buffer.asIntBuffer().put(arrays[i], position, length);
+                        buffer.position(buffer.position() + length * Integer.BYTES);
+                        position += length;
+                    }
+                }
+                write(channel, buffer, crc);
+                buffer.putInt((int) crc.getValue());
+                write(channel, buffer, null);
+                channel.force(false);
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException exception) {
+            log.warn("Failed to write checkpoint: {}", target, exception);
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Writes the bytes of a buffer to a file
+     *
+     * @param channel file channel
+     * @param buffer  buffer to write; flipped for writing, and cleared once written
+     * @param crc     checksum to update with the written bytes, or null
+     * @throws IOException if the file cannot be written
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+        buffer.flip();
+        if (crc != null) {
+            crc.update(buffer.duplicate());
+        }
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * @param name checkpoint name
+     * @return checkpoint file
+     */
+    private File file(String name) {
+        return new File(this.directory, name + ".checkpoint");
+    }
+
+    /**
+     * Copies limbs into a natural
+     *
+     * @param limbs significant limbs
+     * @return natural of the limbs
+     */
+    private static Natural natural(int[] limbs) {
+        Natural natural = Natural.allocate(limbs.length);
+        System.arraycopy(limbs, 0, natural.limbs, 0, limbs.length);
+        natural.length = limbs.length;
+        return natural;
+    }
+
+    /**
+     * Subtree checkpoints of a single product tree
+     */
+    final class Tree implements ProductTree.NodeStore {
+        /**
+         * Product index
+         */
+        private final int product;
+
+        /**
+         * Number of restored subtrees
+         */
+        private final AtomicLong restoredNodes = new AtomicLong();
+
+        /**
+         * Total bit length of the restored subtrees
+         */
+        private final AtomicLong restoredBits = new AtomicLong();
+
+        private Tree(int product) {
+            this.product = product;
+        }
+
+        @Override
+        public Natural restore(int from, int to, long bits) {
+            if (bits < Checkpoints.this.minimumBits) return null;
+
+            int[][] arrays = Checkpoints.this.read(this.name(from, to));
+            if (arrays == null) return null;
+            Natural natural = natural(arrays[0]);
+            this.restoredNodes.incrementAndGet();
+            this.restoredBits.addAndGet(natural.bitLength());
+            return natural;
+        }
+
+        @Override
+        public void store(int from, int to, long bits, Natural product) {
+            if (bits < Checkpoints.this.minimumBits) return;
+
+            Checkpoints.this.write(this.name(from, to), new int[][]{product.limbs}, new int[]{product.length});
+        }
+
+        @Override
+        public void discard(int from, int to, long bits) {
+            if (bits < Checkpoints.this.minimumBits) return;
+
+            //noinspection ResultOfMethodCallIgnored
+            Checkpoints.this.file(this.name(from, to)).delete();
+        }
+
+        /**
+         * @return number of restored subtrees
+         */
+        long restoredNodes() {
+            return this.restoredNodes.get();
+        }
+
+        /**
+         * @return total bit length of the restored subtrees
+         */
+        long restoredBits() {
+            return this.restoredBits.get();
+        }
+
+        /**
+         * @param from inclusive start factor index
+         * @param to   exclusive end factor index
+         * @return checkpoint name of a subtree
+         */
+        private String name(int from, int to) {
+            return "product-" + this.product + "-" + from + "-" + to;
+        }
+    }
+}
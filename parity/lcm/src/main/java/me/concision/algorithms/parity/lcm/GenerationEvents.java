@@ -0,0 +1,172 @@
+package me.concision.algorithms.parity.lcm;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events of source generation; see {@link GenerationMetrics}. Events are only recorded while a
+ * flight recording is active, e.g. with {@code -XX:StartFlightRecording}. JFR types are only referenced by this class,
+ * and handles are passed as {@link Object}s, such that {@link GenerationMetrics} does not load them on Java runtimes
+ * without JFR.
+ *
+ * @author Concision
+ */
+final class GenerationEvents {
+    private GenerationEvents() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Begins a phase event
+     *
+     * @param phase phase name
+     * @return event handle
+     */
+    static Object beginPhase(String phase) {
+        PhaseEvent event = new PhaseEvent();
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends and commits a phase event
+     *
+     * @param handle         event handle of {@link #beginPhase(String)}
+     * @param product        product index, or -1 if the phase does not belong to a product
+     * @param bits           operand or product bit length, or -1
+     * @param allocatedBytes bytes allocated in the heap during the phase
+     * @param collections    number of garbage collections during the phase
+     * @param gcMillis       accumulated garbage collection time during the phase in milliseconds
+     * @param cpuNanos       process CPU time during the phase in nanoseconds, or -1 if unsupported
+     * @param busyThreads    average number of busy threads during the phase, or -1 if unsupported
+     */
+    static void endPhase(Object handle, int product, long bits, long allocatedBytes, long collections, long gcMillis, long cpuNanos, double busyThreads) {
+        PhaseEvent event = (PhaseEvent) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            event.product = product;
+            event.bits = bits;
+            event.allocatedBytes = allocatedBytes;
+            event.collections = collections;
+            event.gcTime = gcMillis;
+            event.cpuTime = cpuNanos;
+            event.busyThreads = busyThreads;
+            event.commit();
+        }
+    }
+
+    /**
+     * Commits a product tree level event
+     *
+     * @param product product index
+     * @param level   level statistics
+     */
+    static void level(int product, ProductTree.Level level) {
+        TreeLevelEvent event = new TreeLevelEvent();
+        if (event.isEnabled()) {
+            event.product = product;
+            event.depth = level.getDepth();
+            event.multiplications = level.getMultiplications();
+            event.productBits = level.getProductBits();
+            event.elapsed = level.getElapsedNanos();
+            event.multiplyTime = level.getMultiplyNanos();
+            event.collections = level.getCollections();
+            event.gcTime = level.getGcMillis();
+            event.peakHeap = level.getPeakHeapBytes();
+            event.allocatedBytes = level.getAllocatedBytes();
+            event.busyThreads = level.getBusyThreads();
+            event.commit();
+        }
+    }
+
+    @Name("me.concision.parity.Phase")
+    @Label("Generation Phase")
+    @Description("A phase of Parity source generation")
+    @Category({"Parity", "Generation"})
+    @StackTrace(false)
+    static final class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Product")
+        @Description("Product index, or -1 if the phase does not belong to a product")
+        int product;
+
+        @Label("Bits")
+        @Description("Operand or product bit length, or -1")
+        long bits;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocatedBytes;
+
+        @Label("Garbage Collections")
+        long collections;
+
+        @Label("GC Time")
+        @Timespan(Timespan.MILLISECONDS)
+        long gcTime;
+
+        @Label("CPU Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long cpuTime;
+
+        @Label("Busy Threads")
+        @Description("Average number of busy threads")
+        double busyThreads;
+    }
+
+    @Name("me.concision.parity.TreeLevel")
+    @Label("Product Tree Level")
+    @Description("Multiplications of a single product tree level")
+    @Category({"Parity", "Generation"})
+    @StackTrace(false)
+    static final class TreeLevelEvent extends Event {
+        @Label("Product")
+        int product;
+
+        @Label("Depth")
+        int depth;
+
+        @Label("Multiplications")
+        long multiplications;
+
+        @Label("Product Bits")
+        long productBits;
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+
+        @Label("Multiply Time")
+        @Description("Accumulated multiplication time across all threads")
+        @Timespan(Timespan.NANOSECONDS)
+        long multiplyTime;
+
+        @Label("Garbage Collections")
+        long collections;
+
+        @Label("GC Time")
+        @Timespan(Timespan.MILLISECONDS)
+        long gcTime;
+
+        @Label("Peak Heap")
+        @DataAmount
+        long peakHeap;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocatedBytes;
+
+        @Label("Busy Threads")
+        @Description("Average number of active pool threads as each multiplication started")
+        double busyThreads;
+    }
+}
@@ -0,0 +1,441 @@
+package me.concision.algorithms.parity.lcm;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Structured metrics of a source generation run. Each phase (e.g. sieving, multiplying a product, or writing the
+ * sources) records its duration, the bytes allocated in the heap, garbage collections, and the process CPU time, and
+ * each product tree level records its multiplication statistics, allocated bytes, and garbage collections. Metrics
+ * are emitted as {@link GenerationEvents JFR events} when a flight recording is active, and are written as a JSON run
+ * report, such that runs can be compared across changes, JDKs, and hardware.
+ * <p>
+ * Allocated bytes are the heap bytes reclaimed by garbage collections during the phase, plus the growth of the used
+ * heap; they therefore include the allocations of all threads, including threads that terminated during the phase.
+ *
+ * @author Concision
+ */
+@Log4j2
+final class GenerationMetrics {
+    /**
+     * Report format version
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Whether JFR events are available on this Java runtime
+     */
+    private static final boolean JFR = available("jdk.jfr.Event");
+
+    /**
+     * Wall-clock time of the start of the run in milliseconds since the epoch
+     */
+    private final long startMillis = System.currentTimeMillis();
+
+    /**
+     * Heap bytes reclaimed by all garbage collections so far
+     */
+    private final AtomicLong collectedBytes = new AtomicLong();
+
+    /**
+     * Completed phases, in order of completion
+     */
+    private final List<Phase> phases = new ArrayList<>();
+
+    /**
+     * Multiplied product tree levels, in order of completion
+     */
+    private final List<Level> levels = new ArrayList<>();
+
+    /**
+     * Constructs metrics, and starts observing garbage collections
+     */
+    GenerationMetrics() {
+        Set<String> heapPools = new HashSet<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) heapPools.add(pool.getName());
+        }
+
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (!(collector instanceof NotificationEmitter)) continue;
+            ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) return;
+
+                GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                long collected = used(info.getGcInfo().getMemoryUsageBeforeGc(), heapPools) - used(info.getGcInfo().getMemoryUsageAfterGc(), heapPools);
+                this.collectedBytes.addAndGet(Math.max(0, collected));
+            }, null, null);
+        }
+    }
+
+    /**
+     * Starts a phase; the phase is recorded once it is closed
+     *
+     * @param name phase name, e.g. "sieve"
+     * @return started phase
+     */
+    Phase phase(@NonNull String name) {
+        return new Phase(name);
+    }
+
+    /**
+     * Records the levels of a multiplied product tree
+     *
+     * @param product product index
+     * @param levels  level statistics of the tree
+     */
+    void levels(int product, @NonNull List<ProductTree.Level> levels) {
+        synchronized (this.levels) {
+            for (ProductTree.Level level : levels) {
+                this.levels.add(new Level(product, level));
+                if (JFR) {
+                    GenerationEvents.level(product, level);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the JSON run report, replacing any previous report. A failure is logged, as the report is not required
+     * by the generation.
+     *
+     * @param file     report file
+     * @param settings generation settings to include in the report, e.g. the limit
+     */
+    void write(@NonNull File file, @NonNull Map<String, Object> settings) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"version\": ").append(VERSION).append(",\n");
+        json.append("  \"start\": ").append(this.startMillis).append(",\n");
+        json.append("  \"durationMillis\": ").append(System.currentTimeMillis() - this.startMillis).append(",\n");
+
+        // environment that the run is compared across
+        json.append("  \"environment\": {");
+        Runtime runtime = Runtime.getRuntime();
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        appendMember(json, "javaVersion", System.getProperty("java.version"), true);
+        appendMember(json, "javaVendor", System.getProperty("java.vendor"), false);
+        appendMember(json, "vm", System.getProperty("java.vm.name") + " " + System.getProperty("java.vm.version"), false);
+        appendMember(json, "os", os.getName() + " " + os.getVersion() + " " + os.getArch(), false);
+        appendMember(json, "processors", runtime.availableProcessors(), false);
+        appendMember(json, "maxHeapBytes", runtime.maxMemory(), false);
+        appendMember(json, "collectors", String.join(", ", ManagementFactory.getGarbageCollectorMXBeans().stream().map(GarbageCollectorMXBean::getName).toArray(String[]::new)), false);
+        json.append("\n  },\n");
+
+        json.append("  \"settings\": {");
+        boolean first = true;
+        for (Map.Entry<String, Object> setting : settings.entrySet()) {
+            appendMember(json, setting.getKey(), setting.getValue(), first);
+            first = false;
+        }
+        json.append("\n  },\n");
+
+        json.append("  \"phases\": [");
+        synchronized (this.phases) {
+            for (int i = 0; i < this.phases.size(); i++) {
+                Phase phase = this.phases.get(i);
+                json.append(i == 0 ? "\n    {" : ",\n    {");
+                appendMember(json, "name", phase.name, true);
+                appendMember(json, "product", phase.product, false);
+                appendMember(json, "bits", phase.bits, false);
+                appendMember(json, "startMillis", phase.startMillis, false);
+                appendMember(json, "durationNanos", phase.durationNanos, false);
+                appendMember(json, "allocatedBytes", phase.allocatedBytes, false);
+                appendMember(json, "collections", phase.collections, false);
+                appendMember(json, "gcMillis", phase.gcMillis, false);
+                appendMember(json, "cpuNanos", phase.cpuNanos, false);
+                appendMember(json, "busyThreads", phase.busyThreads, false);
+                json.append("}");
+            }
+        }
+        json.append("\n  ],\n");
+
+        json.append("  \"levels\": [");
+        synchronized (this.levels) {
+            for (int i = 0; i < this.levels.size(); i++) {
+                Level level = this.levels.get(i);
+                json.append(i == 0 ? "\n    {" : ",\n    {");
+                appendMember(json, "product", level.product, true);
+                appendMember(json, "depth", level.level.getDepth(), false);
+                appendMember(json, "multiplications", level.level.getMultiplications(), false);
+                appendMember(json, "productBits", level.level.getProductBits(), false);
+                appendMember(json, "elapsedNanos", level.level.getElapsedNanos(), false);
+                appendMember(json, "multiplyNanos", level.level.getMultiplyNanos(), false);
+                appendMember(json, "collections", level.level.getCollections(), false);
+                appendMember(json, "gcMillis", level.level.getGcMillis(), false);
+                appendMember(json, "peakHeapBytes", level.level.getPeakHeapBytes(), false);
+                appendMember(json, "allocatedBytes", level.level.getAllocatedBytes(), false);
+                appendMember(json, "busyThreads", level.level.getBusyThreads(), false);
+                json.append("}");
+            }
+        }
+        json.append("\n  ]\n");
+        json.append("}\n");
+
+        // an interrupted write never replaces a complete report
+        Path target = file.toPath();
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            //noinspection ResultOfMethodCallIgnored
+            file.getAbsoluteFile().getParentFile().mkdirs();
+            Files.write(temporary, json.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Wrote run report: {}", file.getAbsolutePath());
+        } catch (IOException exception) {
+            log.warn("Failed to write run report: {}", file.getAbsolutePath(), exception);
+        }
+    }
+
+    /**
+     * Appends a member to a JSON object
+     *
+     * @param json  JSON output
+     * @param name  member name
+     * @param value member value; a number, boolean, or a string
+     * @param first whether the member is the first of its object
+     */
+    private static void appendMember(StringBuilder json, String name, Object value, boolean first) {
+        json.append(first ? " " : ", ");
+        appendString(json, name);
+        json.append(": ");
+        if (value instanceof Double && !Double.isFinite((Double) value)) {
+            json.append("null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            json.append(value);
+        } else {
+            appendString(json, String.valueOf(value));
+        }
+    }
+
+    /**
+     * Appends a JSON string
+     *
+     * @param json  JSON output
+     * @param value string value
+     */
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * @param usages memory usage of each memory pool
+     * @param pools  names of the pools to sum
+     * @return total used bytes of the pools
+     */
+    private static long used(Map<String, MemoryUsage> usages, Set<String> pools) {
+        long used = 0;
+        for (Map.Entry<String, MemoryUsage> usage : usages.entrySet()) {
+            if (pools.contains(usage.getKey())) used += usage.getValue().getUsed();
+        }
+        return used;
+    }
+
+    /**
+     * @return total number of garbage collections of all collectors
+     */
+    private static long collections() {
+        long collections = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            collections += Math.max(0, collector.getCollectionCount());
+        }
+        return collections;
+    }
+
+    /**
+     * @return total garbage collection time of all collectors in milliseconds
+     */
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * @return CPU time of the process in nanoseconds, or -1 if unsupported
+     */
+    private static long cpuNanos() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    /**
+     * @param className class name
+     * @return whether the class is available
+     */
+    private static boolean available(String className) {
+        try {
+            Class.forName(className, false, GenerationMetrics.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError ignored) {
+            return false;
+        }
+    }
+
+    /**
+     * A phase of the run; recorded once closed
+     */
+    final class Phase implements AutoCloseable {
+        /**
+         * Phase name
+         */
+        private final String name;
+
+        /**
+         * JFR event handle, or null if JFR is unavailable
+         */
+        private final Object event;
+
+        /**
+         * Wall-clock time of the phase start in milliseconds since the epoch
+         */
+        private final long startMillis = System.currentTimeMillis();
+
+        /**
+         * {@link System#nanoTime()} of the phase start
+         */
+        private final long startNanos = System.nanoTime();
+
+        /**
+         * Reclaimed heap bytes at the phase start
+         */
+        private final long startCollectedBytes = GenerationMetrics.this.collectedBytes.get();
+
+        /**
+         * Used heap bytes at the phase start
+         */
+        private final long startUsedBytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+
+        /**
+         * Number of garbage collections at the phase start
+         */
+        private final long startCollections = collections();
+
+        /**
+         * Garbage collection time at the phase start
+         */
+        private final long startGcMillis = gcMillis();
+
+        /**
+         * Process CPU time at the phase start
+         */
+        private final long startCpuNanos = cpuNanos();
+
+        /**
+         * Product index, or -1 if the phase does not belong to a product
+         */
+        private int product = -1;
+
+        /**
+         * Operand or product bit length, or -1
+         */
+        private long bits = -1;
+
+        // measured once closed
+        private long durationNanos;
+        private long allocatedBytes;
+        private long collections;
+        private long gcMillis;
+        private long cpuNanos;
+        private double busyThreads;
+
+        private Phase(String name) {
+            this.name = name;
+            this.event = JFR ? GenerationEvents.beginPhase(name) : null;
+        }
+
+        /**
+         * @param product product index of the phase
+         * @return this phase
+         */
+        Phase product(int product) {
+            this.product = product;
+            return this;
+        }
+
+        /**
+         * @param bits operand or product bit length of the phase
+         * @return this phase
+         */
+        Phase bits(long bits) {
+            this.bits = bits;
+            return this;
+        }
+
+        @Override
+        public void close() {
+            GenerationMetrics metrics = GenerationMetrics.this;
+            this.durationNanos = System.nanoTime() - this.startNanos;
+            this.allocatedBytes = Math.max(0, metrics.collectedBytes.get() - this.startCollectedBytes
+                    + ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() - this.startUsedBytes);
+            this.collections = collections() - this.startCollections;
+            this.gcMillis = gcMillis() - this.startGcMillis;
+            this.cpuNanos = this.startCpuNanos < 0 ? -1 : cpuNanos() - this.startCpuNanos;
+            this.busyThreads = this.cpuNanos < 0 || this.durationNanos == 0 ? -1 : (double) this.cpuNanos / this.durationNanos;
+
+            if (this.event != null) {
+                GenerationEvents.endPhase(this.event, this.product, this.bits, this.allocatedBytes, this.collections, this.gcMillis, this.cpuNanos, this.busyThreads);
+            }
+            synchronized (metrics.phases) {
+                metrics.phases.add(this);
+            }
+        }
+    }
+
+    /**
+     * A multiplied level of a product tree
+     */
+    private static final class Level {
+        /**
+         * Product index
+         */
+        private final int product;
+
+        /**
+         * Level statistics
+         */
+        private final ProductTree.Level level;
+
+        private Level(int product, ProductTree.Level level) {
+            this.product = product;
+            this.level = level;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package me.concision.algorithms.parity.lcm;
+
+import java.math.BigInteger;
+
+/**
+ * Default multiplication backend for small operands; multiplies {@link Natural}s with schoolbook or Karatsuba
+ * multiplication on a single thread, directly into the destination's limbs with scratch space from the current
+ * thread's {@link LimbArena}.
+ *
+ * @author Concision
+ */
+public final class KaratsubaMultiplier implements Multiplier {
+    /**
+     * Stateless shared instance
+     */
+    public static final KaratsubaMultiplier INSTANCE = new KaratsubaMultiplier();
+
+    @Override
+    public BigInteger multiply(BigInteger a, BigInteger b) {
+        return Natural.multiply(this, a, b);
+    }
+
+    @Override
+    public void multiply(Natural a, Natural b, Natural product) {
+        Natural.multiply(a, b, product);
+    }
+}
@@ -1,29 +1,34 @@
 package me.concision.algorithms.parity.lcm;
 
 import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.apache.commons.lang3.time.StopWatch;
 import org.apache.logging.log4j.core.util.IOUtils;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
-import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintStream;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.zip.CRC32;
 
 import static java.lang.Math.ceil;
 import static java.lang.Math.floor;
@@ -47,9 +52,175 @@ public class LcmParitySourceGenerator {
     ).toFile();
 
     /**
-     * LCM lookup table upper limit; should be {@link Integer#MAX_VALUE} unless testing.
+     * How products are packaged; either "source" (default) to encode them as string constants in {@link #PARITY_JAVA},
+     * or "resource" to write them as a binary {@link #PRODUCT_RESOURCE} that Parity reads in bulk
      */
-    public static final int LIMIT = Integer.MAX_VALUE;
+    private static final String PACKAGING = System.getProperty("parity.packaging", "source");
+
+    /**
+     * Compiled classes directory; receives the {@link #PRODUCT_RESOURCE} or the compiled shard classes
+     */
+    private static final File OUTPUT_ROOT = new File(System.getProperty("parity.output", String.join(File.separator, ".", "target", "classes")));
+
+    /**
+     * Product resource location when {@link #PACKAGING} is "resource", in the compiled classes directory
+     */
+    private static final File PRODUCT_RESOURCE = Paths.get(
+            OUTPUT_ROOT.getPath(),
+            LcmParitySourceGenerator.class.getPackage().getName().replace('.', File.separatorChar),
+            "Parity.products"
+    ).toFile();
+
+    /**
+     * Generated shard sources directory when {@link #PACKAGING} is "source". Shards hold the encoded products, and are
+     * compiled by the generator itself, such that Parity.java only holds the facade.
+     */
+    private static final File SHARD_SOURCES = Paths.get(
+            System.getProperty("parity.shards", String.join(File.separator, ".", "target", "generated-sources", "shards")),
+            LcmParitySourceGenerator.class.getPackage().getName().replace('.', File.separatorChar)
+    ).toFile();
+
+    /**
+     * Maximum number of string literals of each shard; the memory needed to compile a shard grows with its size, at
+     * roughly 2MB per literal
+     */
+    private static final int SHARD_LITERALS = Integer.getInteger("parity.shard.literals", 128);
+
+    /**
+     * How shard classes are built; either "bytecode" (default) to write their class files directly, or "javac" to
+     * generate their sources and compile them with forked javac processes
+     */
+    private static final String SHARD_BACKEND = System.getProperty("parity.shard.backend", "bytecode");
+
+    /**
+     * Maximum heap size of each forked javac compiling a shard
+     */
+    private static final String SHARD_MEMORY = System.getProperty("parity.shard.memory", "256m");
+
+    /**
+     * Number of shards compiled concurrently
+     */
+    private static final int SHARD_WORKERS = Integer.getInteger("parity.shard.workers", Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Directory of the cached products, checkpoints, and run reports
+     */
+    private static final String CACHE_ROOT = System.getProperty("parity.cache", ".cache");
+
+    /**
+     * LCM lookup table upper limit; should be {@link Integer#MAX_VALUE} unless testing or benchmarking, as the parity of
+     * larger integers is undefined.
+     */
+    public static final int LIMIT = Integer.getInteger("parity.limit", Integer.MAX_VALUE);
+
+    /**
+     * Limits of the lookup tables, as a comma-separated list; each query is answered from the table of the smallest
+     * limit that covers its magnitude, such that small integers only reduce small products. The {@link #LIMIT} is
+     * always the largest tier; larger limits are ignored.
+     */
+    private static final int[] TIERS = tiers(System.getProperty("parity.tiers", ""));
+
+    /**
+     * Sieve used to compute prime-powers; either "segmented" (default) or "eratosthenes"
+     */
+    private static final String SIEVE = System.getProperty("parity.sieve", "segmented");
+
+    /**
+     * Size of each segment of the segmented sieve in bytes; should approximately fit into a core's L2 cache
+     */
+    private static final int SIEVE_SEGMENT_BYTES = Integer.getInteger("parity.sieve.segment", 256 * 1024 /* 256KB */);
+
+    /**
+     * Pipelines the segmented sieve directly into leaf multiplication instead of sieving all prime-powers first
+     */
+    private static final boolean STREAM = Boolean.parseBoolean(System.getProperty("parity.stream", "true"));
+
+    /**
+     * Number of threads multiplying sieved batches into leaves when streaming
+     */
+    private static final int STREAM_WORKERS = Integer.getInteger("parity.stream.workers", Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Maximum number of sieved batches waiting to be multiplied when streaming
+     */
+    private static final int STREAM_QUEUE = Integer.getInteger("parity.stream.queue", 2 * STREAM_WORKERS);
+
+    /**
+     * Number of products the prime-powers are partitioned into; 0 chooses the fewest products whose magnitudes fit
+     * into a {@link BigInteger}. More products allow queries to test products in parallel.
+     */
+    private static final int PRODUCTS = Integer.getInteger("parity.products", 0);
+
+    /**
+     * Product tree subtrees with a total bit length of at most this many bits are multiplied without forking
+     */
+    private static final long TREE_SEQUENTIAL_BITS = Long.getLong("parity.tree.sequential", 1 << 20);
+
+    /**
+     * Multiplication backend for large operands; either "ntt", "karatsuba", "biginteger", or a {@link Multiplier}
+     * class name
+     */
+    private static final String MULTIPLIER = System.getProperty("parity.multiplier", "ntt");
+
+    /**
+     * Multiplication backend for operands smaller than {@link #MULTIPLIER_THRESHOLD_BITS}; either "karatsuba",
+     * "biginteger", or a {@link Multiplier} class name
+     */
+    private static final String MULTIPLIER_SMALL = System.getProperty("parity.multiplier.small", "karatsuba");
+
+    /**
+     * Minimum operand bit length to use the {@link #MULTIPLIER} backend; smaller operands use {@link #MULTIPLIER_SMALL}
+     */
+    private static final long MULTIPLIER_THRESHOLD_BITS = Long.getLong("parity.multiplier.threshold", 1 << 18);
+
+    /**
+     * Checkpoints the sieve result and product subtrees while computing products, such that an interrupted generation
+     * resumes from them; see {@link Checkpoints}
+     */
+    private static final boolean CHECKPOINT = Boolean.parseBoolean(System.getProperty("parity.checkpoint", "true"));
+
+    /**
+     * Product subtrees with a total bit length of at least this many bits are checkpointed
+     */
+    private static final long CHECKPOINT_BITS = Long.getLong("parity.checkpoint.bits", 1 << 24);
+
+    /**
+     * Extends the cached products of the largest smaller limit when a limit is not cached, such that only the
+     * prime-powers between both limits are sieved and multiplied
+     */
+    private static final boolean EXTEND = Boolean.parseBoolean(System.getProperty("parity.extend", "true"));
+
+    /**
+     * Heap memory budget of the product computation in bytes, with an optional "k", "m", or "g" suffix; 0 (default)
+     * for no budget. With a budget, idle leaf sets, finished products, and large subtree products waiting for their
+     * sibling are spilled to memory-mapped scratch files next to the cache, and the NTT transform length is bounded
+     * such that its buffers take at most a quarter of the budget. The heap must still hold the largest multiplication.
+     */
+    private static final long MEMORY_BUDGET = bytes(System.getProperty("parity.memory.budget", "0"));
+
+    /**
+     * Subtree products of at least this many bits are spilled while they wait for their sibling when there is a
+     * {@link #MEMORY_BUDGET}; smaller values trade more scratch file I/O for a smaller heap
+     */
+    private static final long SPILL_BITS = Long.getLong("parity.spill.bits", MEMORY_BUDGET * Byte.SIZE / 32);
+
+    /**
+     * Multiplication backend of the product trees
+     */
+    private static final Multiplier PRODUCT_MULTIPLIER = Multiplier.threshold(
+            Multiplier.named(MULTIPLIER_SMALL),
+            MEMORY_BUDGET != 0 && "ntt".equals(MULTIPLIER)
+                    // 2 concurrent convolutions of 2 transforms of 32-bit values
+                    ? new NttMultiplier((int) Math.max(1 << 16, Math.min(NttMultiplier.MAX_LENGTH, Long.highestOneBit(MEMORY_BUDGET / 4 / (4 * Integer.BYTES)))))
+                    : Multiplier.named(MULTIPLIER),
+            MULTIPLIER_THRESHOLD_BITS
+    );
+
+    /**
+     * Structured metrics of the generation phases; written as a JSON run report next to the cache file, and emitted
+     * as JFR events while a flight recording is active
+     */
+    private static final GenerationMetrics METRICS = new GenerationMetrics();
 
     /**
      * Initiate source code generation
@@ -59,7 +230,20 @@ public class LcmParitySourceGenerator {
     public static void main(String[] args) {
         log.info("Target Parity.java generated source file: {}", PARITY_JAVA.getAbsolutePath());
 
-        if (PARITY_JAVA.exists()) {
+        if (!"source".equals(PACKAGING) && !"resource".equals(PACKAGING)) {
+            throw new IllegalArgumentException("unknown packaging: " + PACKAGING);
+        }
+        if (TIERS[0] < 3) {
+            throw new IllegalArgumentException("limits must be at least 3: " + Arrays.toString(TIERS));
+        }
+        if (!"bytecode".equals(SHARD_BACKEND) && !"javac".equals(SHARD_BACKEND)) {
+            throw new IllegalArgumentException("unknown shard backend: " + SHARD_BACKEND);
+        }
+        if ("bytecode".equals(SHARD_BACKEND) && ShardClassWriter.MAX_CHUNKS < SHARD_LITERALS) {
+            throw new IllegalArgumentException("at most " + ShardClassWriter.MAX_CHUNKS + " literals per shard class are supported");
+        }
+        File output = "source".equals(PACKAGING) ? new File(PRODUCT_RESOURCE.getParentFile(), "ParityShard0.class") : PRODUCT_RESOURCE;
+        if (PARITY_JAVA.exists() && output.exists()) {
             log.info("Source file already exists");
             return;
         }
@@ -96,200 +280,751 @@ public class LcmParitySourceGenerator {
      * Generate the {@link #PARITY_JAVA} source file
      */
     private static void generateSourceFile() {
-        BigInteger[] products;
+        // BigInteger#toByteArray() bytes of the products of each tier, in ascending order of the tier limits
+        ByteBuffer[][] tiers = new ByteBuffer[TIERS.length][];
+        for (int t = 0; t < TIERS.length; t++) {
+            if (1 < TIERS.length) {
+                log.info("Computing tier {} of {} (limit: {})...", t + 1, TIERS.length, String.format("%,d", TIERS[t]));
+            }
+            // smaller tiers are partitioned into the fewest products
+            tiers[t] = products(TIERS[t], TIERS[t] == LIMIT ? PRODUCTS : 0);
+            if (1 < TIERS.length) {
+                log.info("Computed tier {} of {}", t + 1, TIERS.length);
+                log.info("");
+            }
+        }
+
+        // smaller tiers first, such that they are loaded first
+        int[] tierProducts = new int[TIERS.length + 1];
+        for (int t = 0; t < TIERS.length; t++) {
+            tierProducts[t + 1] = tierProducts[t] + tiers[t].length;
+        }
+        ByteBuffer[] products = Arrays.stream(tiers).flatMap(Arrays::stream).toArray(ByteBuffer[]::new);
+
+        log.info("");
+
+        log.info("Writing source file...");
+        write(products, tierProducts);
+        log.info("Source file written");
+
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("limit", LIMIT);
+        settings.put("tiers", Arrays.stream(TIERS).mapToObj(String::valueOf).collect(Collectors.joining(",")));
+        settings.put("products", PRODUCTS);
+        settings.put("packaging", PACKAGING);
+        settings.put("sieve", SIEVE);
+        settings.put("sieveSegmentBytes", SIEVE_SEGMENT_BYTES);
+        settings.put("stream", STREAM);
+        settings.put("streamWorkers", STREAM_WORKERS);
+        settings.put("treeSequentialBits", TREE_SEQUENTIAL_BITS);
+        settings.put("multiplier", MULTIPLIER);
+        settings.put("multiplierSmall", MULTIPLIER_SMALL);
+        settings.put("multiplierThresholdBits", MULTIPLIER_THRESHOLD_BITS);
+        settings.put("memoryBudgetBytes", MEMORY_BUDGET);
+        settings.put("checkpoint", CHECKPOINT);
+        settings.put("shardBackend", SHARD_BACKEND);
+        settings.put("shardLiterals", SHARD_LITERALS);
+        METRICS.write(Paths.get(CACHE_ROOT, LIMIT + ".report.json").toFile(), settings);
+    }
 
-        {
-            File cacheFile = Paths.get(System.getProperty("parity.cache", ".cache"), String.valueOf(LIMIT)).toFile();
-            // if no cache file is found, compute products
-            if (!cacheFile.exists()) {
+    /**
+     * Reads the products of a limit from its cache file, or computes and caches them
+     *
+     * @param limit             LCM limit
+     * @param requestedProducts number of products the prime-powers are partitioned into; 0 for the fewest
+     * @return {@link BigInteger#toByteArray()} bytes of the products
+     */
+    private static ByteBuffer[] products(int limit, int requestedProducts) {
+        ByteBuffer[] products = null;
+
+        File cacheFile = Paths.get(CACHE_ROOT, String.valueOf(limit)).toFile();
+        // use cached computed products
+        if (cacheFile.exists()) {
+            log.info("Reading from cache file: {}", cacheFile.getAbsolutePath());
+            StopWatch watch = StopWatch.createStarted();
+            try (GenerationMetrics.Phase ignored = METRICS.phase("cache-read")) {
+                products = ProductCache.read(cacheFile, limit, requestedProducts);
+                if (products == null) {
+                    log.info("Cache file was written by another format version or product count; recomputing products");
+                } else {
+                    watch.stop();
+                    log.info("Read {} cached products; {} elapsed", products.length, watch.formatTime());
+                }
+            } catch (IOException exception) {
+                log.warn("Discarding invalid cache file: {}", cacheFile.getAbsolutePath(), exception);
+            }
+        }
+
+        // if no usable cache file is found, extend the products of a smaller cached limit, or compute products
+        if (products == null) {
+            // holds values outside of the heap while they are idle
+            ScratchSpace scratch = MEMORY_BUDGET == 0 ? null : new ScratchSpace(
+                    new File(cacheFile.getParentFile(), cacheFile.getName() + ".scratch"),
+                    SPILL_BITS
+            );
+            if (scratch != null) {
+                log.info("Memory budget: {} bytes; spilling subtree products of at least {} bits", String.format("%,d", MEMORY_BUDGET), String.format("%,d", SPILL_BITS));
+            }
+
+            if (EXTEND) {
+                products = extendProducts(cacheFile, limit, requestedProducts, scratch);
+            }
+
+            // the key identifies every input that determines sieved and multiplied values
+            Checkpoints checkpoints = products != null || !CHECKPOINT ? null : new Checkpoints(
+                    new File(cacheFile.getParentFile(), cacheFile.getName() + ".checkpoints"),
+                    String.join(";", String.valueOf(limit), String.valueOf(requestedProducts), String.valueOf(STREAM), String.valueOf(SIEVE_SEGMENT_BYTES)),
+                    CHECKPOINT_BITS
+            );
+
+            if (products != null) {
+                log.info("Extended cached products");
+            } else if (STREAM) {
+                // multiplies the factors for the magic lookup numbers into leaves while they are being sieved
+                log.info("Computing LCM prime power leaf products...");
+                Natural[][] leafSets;
+                try {
+                    leafSets = computeLeafSets(limit, requestedProducts, checkpoints);
+                } catch (InterruptedException exception) {
+                    throw new RuntimeException("interrupted while computing leaf products", exception);
+                }
+                log.info("Computed LCM prime power leaf products");
+
+                log.info("");
+
+                log.info("Computing products...");
+                products = products(leafSets, checkpoints, scratch);
+                log.info("Computed products");
+            } else {
                 // computes the factors for the magic lookup numbers used for parity checking
                 log.info("Computing LCM prime power factors...");
-                int[][] factorSets = computeFactorSets();
+                int[][] factorSets = computeFactorSets(limit, requestedProducts, checkpoints);
                 log.info("Computed LCM prime power factors");
 
                 log.info("");
 
                 log.info("Computing products...");
-                products = products(factorSets);
+                products = products(factorSets, checkpoints, scratch);
                 log.info("Computed products");
+            }
 
-                // save products to cache file
-                //noinspection ResultOfMethodCallIgnored
-                cacheFile.getParentFile().mkdirs();
-                try (DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(cacheFile), 16 * 1024 * 1024 /* 16MB */))) {
-                    for (BigInteger product : products) {
-                        byte[] bytes = product.toByteArray();
-                        stream.writeInt(bytes.length);
-                        stream.write(bytes);
-                    }
-                } catch (IOException exception) {
-                    log.error("Failed to write cache file: {}", cacheFile.getAbsolutePath(), exception);
-                }
+            if (scratch != null) {
+                log.info("Spilled {} MB to scratch files", String.format("%,d", scratch.spilledBytes() / (1024 * 1024)));
+                scratch.delete();
+            }
+
+            // save products to cache file
+            //noinspection ResultOfMethodCallIgnored
+            cacheFile.getParentFile().mkdirs();
+            try (GenerationMetrics.Phase ignored = METRICS.phase("cache-write")) {
+                ProductCache.write(cacheFile, limit, requestedProducts, products);
                 log.info("Cached products: {}", cacheFile.getAbsolutePath());
-            } else { // use cached computed products
-                log.info("Reading from cache file: {}", cacheFile.getAbsolutePath());
-                List<BigInteger> numbers = new ArrayList<>();
-                // read products from cache file
-                try (DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile), 16 * 1024 * 1024 /* 16MB */))) {
-                    //noinspection InfiniteLoopStatement
-                    while (true) {
-                        int length = stream.readInt();
-                        byte[] bytes = new byte[length];
-                        int read = stream.read(bytes);
-                        assert read == bytes.length : "unexpected end of file";
-                        numbers.add(new BigInteger(bytes));
-                    }
-                } catch (EOFException ignored) {
-                } catch (IOException exception) {
-                    throw new RuntimeException("failed to read from cache file: " + cacheFile.getAbsolutePath(), exception);
+                // checkpoints are superseded by the cache
+                if (checkpoints != null) {
+                    checkpoints.delete();
                 }
-                //noinspection ToArrayCallWithZeroLengthArrayArgument
-                products = numbers.toArray(new BigInteger[numbers.size()]);
+            } catch (IOException exception) {
+                log.error("Failed to write cache file: {}", cacheFile.getAbsolutePath(), exception);
             }
         }
 
-        log.info("");
+        return products;
+    }
 
-        log.info("Writing source file...");
-        write(products);
-        log.info("Source file written");
+    /**
+     * Extends the cached products of the largest smaller limit, rather than computing all products of a limit. Only the
+     * primes between both limits are sieved, and the exponents of the small primes p '3 <= p <= sqrt(limit)` are
+     * raised; the additional factors of each product are multiplied with their own {@link ProductTree}, and then into
+     * the cached product. The additional prime-powers of a small prime are multiplied into the product that already
+     * holds the prime (see {@link #holders(ByteBuffer[], int[])}), as the products must stay pairwise coprime; primes
+     * above the cached limit are distributed round-robin. Whether the extended products fit into a {@link BigInteger}
+     * is estimated before sieving.
+     *
+     * @param cacheFile         cache file of the limit; smaller limits are cached in the same directory
+     * @param limit             LCM limit
+     * @param requestedProducts number of products; 0 for the fewest
+     * @param scratch           scratch space of a memory budget, or null
+     * @return {@link BigInteger#toByteArray()} bytes of the products, or null if no smaller limit is cached, or if an
+     * extended product would exceed the maximum {@link BigInteger} magnitude
+     */
+    static ByteBuffer[] extendProducts(File cacheFile, int limit, int requestedProducts, ScratchSpace scratch) {
+        // cached limits below the limit, in ascending order
+        File[] cacheFiles = cacheFile.getParentFile().listFiles(file -> file.isFile() && file.getName().matches("\\d{1,10}"));
+        int[] cachedLimits = cacheFiles == null ? new int[0] : Arrays.stream(cacheFiles)
+                .mapToLong(file -> Long.parseLong(file.getName()))
+                .filter(cachedLimit -> 3 <= cachedLimit && cachedLimit < limit)
+                .mapToInt(cachedLimit -> (int) cachedLimit)
+                .sorted()
+                .toArray();
+
+        // the largest smaller limit with usable products
+        int baseLimit = 0;
+        ByteBuffer[] products = null;
+        for (int i = cachedLimits.length - 1; 0 <= i; i--) {
+            int cachedLimit = cachedLimits[i];
+            File baseFile = new File(cacheFile.getParentFile(), String.valueOf(cachedLimit));
+            try (GenerationMetrics.Phase ignored = METRICS.phase("cache-read")) {
+                products = ProductCache.read(baseFile, cachedLimit, requestedProducts);
+            } catch (IOException exception) {
+                log.warn("Skipping invalid cache file: {}", baseFile.getAbsolutePath(), exception);
+            }
+            if (products != null) {
+                baseLimit = cachedLimit;
+                break;
+            }
+        }
+        if (products == null) return null;
+
+        log.info("Extending {} cached products of limit {} to limit {}...", products.length, String.format("%,d", baseLimit), String.format("%,d", limit));
+        StopWatch watch = StopWatch.createStarted();
+
+        // additional prime-powers of the small primes p '3 <= p <= sqrt(limit)`, whose exponents are raised by the limit
+        double limitLog = log(limit);
+        double baseLimitLog = log(baseLimit);
+        IntStream.Builder smallPrimeBuilder = IntStream.builder();
+        IntStream.Builder smallFactorBuilder = IntStream.builder();
+        double smallBits = 0;
+        for (int n = 3; (long) n * n <= limit; n += 2) {
+            boolean prime = true;
+            for (int d = 3; prime && d * d <= n; d += 2) {
+                prime = n % d != 0;
+            }
+            if (prime) {
+                int factor = primePower(n, limitLog) / (n <= baseLimit ? primePower(n, baseLimitLog) : 1);
+                if (factor != 1) {
+                    smallPrimeBuilder.add(n);
+                    smallFactorBuilder.add(factor);
+                    smallBits += log(factor) / log(2);
+                }
+            }
+        }
+        int[] smallPrimes = smallPrimeBuilder.build().toArray();
+        int[] smallFactors = smallFactorBuilder.build().toArray();
+
+        // the extended products must still fit into a BigInteger; the primes between both limits have a total magnitude
+        // of about (limit - baseLimit) / ln(2) bits (prime number theorem), and are distributed round-robin
+        int sieveFrom = Math.max(baseLimit, (int) sqrt(limit));
+        double largeBits = (limit - sieveFrom) / log(2) / products.length;
+        for (int f = 0; f < products.length; f++) {
+            if (Integer.MAX_VALUE <= (long) products[f].remaining() * Byte.SIZE + round(ceil(smallBits + largeBits))) {
+                log.info("Extended product {} would exceed the maximum BigInteger magnitude; computing products instead", f);
+                return null;
+            }
+        }
+
+        // primes above both the cached limit and sqrt(limit), which only have a prime-power exponent of 1
+        int[] largePrimes;
+        try (GenerationMetrics.Phase ignored = METRICS.phase("sieve")) {
+            largePrimes = new SegmentedSieve(sieveFrom, limit, SIEVE_SEGMENT_BYTES).primePowers();
+        }
+        log.info("Sieved {} additional prime powers; {} elapsed", String.format("%,d", smallFactors.length + largePrimes.length), watch.formatTime());
+
+        // small primes of the cached limit are already held by a product; raising their exponents in any other product
+        // would break the pairwise coprimality of the products
+        int cachedSmallPrimes = 0;
+        while (cachedSmallPrimes < smallPrimes.length && smallPrimes[cachedSmallPrimes] <= baseLimit) {
+            cachedSmallPrimes++;
+        }
+        int[] holders;
+        try (GenerationMetrics.Phase ignored = METRICS.phase("extend-scan")) {
+            holders = holders(products, Arrays.copyOf(smallPrimes, cachedSmallPrimes));
+        }
+        for (int i = 0; i < holders.length; i++) {
+            if (holders[i] < 0) throw new IllegalStateException("cached products of limit " + baseLimit + " do not hold prime " + smallPrimes[i]);
+        }
+
+        // distribute the additional factors; new primes are distributed round-robin
+        int[] assignment = new int[smallFactors.length + largePrimes.length];
+        int[] sizes = new int[products.length];
+        for (int i = 0, next = 0; i < assignment.length; i++) {
+            assignment[i] = i < holders.length ? holders[i] : next++ % products.length;
+            sizes[assignment[i]]++;
+        }
+        int[][] factorSets = new int[products.length][];
+        double[] magnitudes = new double[products.length];
+        for (int f = 0; f < products.length; f++) {
+            factorSets[f] = new int[sizes[f]];
+        }
+        int[] positions = new int[products.length];
+        for (int i = 0; i < assignment.length; i++) {
+            int factor = i < smallFactors.length ? smallFactors[i] : largePrimes[i - smallFactors.length];
+            int f = assignment[i];
+            factorSets[f][positions[f]++] = factor;
+            magnitudes[f] += log(factor);
+        }
+
+        // the estimate is approximate; the exact magnitudes must still fit
+        for (int f = 0; f < products.length; f++) {
+            long bits = (long) products[f].remaining() * Byte.SIZE + round(ceil(magnitudes[f] / log(2)));
+            if (Integer.MAX_VALUE <= bits) {
+                log.info("Extended product {} would exceed the maximum BigInteger magnitude; computing products instead", f);
+                return null;
+            }
+        }
+
+        // multiply the additional factors into the cached products
+        for (int f = 0; f < products.length; f++) {
+            if (factorSets[f].length == 0) continue;
+            log.info("Extending product {} of {} by {} factors...", f + 1, products.length, String.format("%,d", factorSets[f].length));
+            StopWatch productWatch = StopWatch.createStarted();
+
+            Arrays.parallelSort(factorSets[f]);
+            long bitLength;
+            try (GenerationMetrics.Phase phase = METRICS.phase("extend").product(f)) {
+                Natural factors = new ProductTree(factorSets[f], TREE_SEQUENTIAL_BITS, PRODUCT_MULTIPLIER, null, scratch).product();
+                Natural cached = Natural.valueOf(products[f]);
+                Natural product = Natural.allocate(cached.length() + factors.length());
+                PRODUCT_MULTIPLIER.multiply(cached, factors, product);
+                cached.release();
+                factors.release();
+
+                bitLength = product.bitLength();
+                phase.bits(bitLength);
+                products[f] = scratch != null ? scratch.bytes(product) : ByteBuffer.wrap(product.toBigInteger().toByteArray());
+                product.release();
+            }
+            // release factors set to be garbage collected
+            factorSets[f] = null;
+
+            productWatch.stop();
+            log.info("Product extended; digits: {}; {} elapsed",
+                    String.format("%,d", round(ceil(bitLength * Math.log(2) / Math.log(10)))),
+                    productWatch.formatTime()
+            );
+        }
+
+        watch.stop();
+        log.info("Extended products of limit {}; {} elapsed", String.format("%,d", baseLimit), watch.formatTime());
+        return products;
+    }
+
+    /**
+     * Finds the product that holds each of a set of primes. As the products are pairwise coprime, at most one product is
+     * divisible by each prime. Consecutive primes are grouped into moduli below 2^31, and each product is reduced by
+     * all moduli in a single pass over its limbs.
+     *
+     * @param products {@link BigInteger#toByteArray()} bytes of the products
+     * @param primes   odd primes
+     * @return index of the product that is divisible by each prime, or -1 if none is
+     */
+    static int[] holders(ByteBuffer[] products, int[] primes) {
+        int[] holders = new int[primes.length];
+        Arrays.fill(holders, products.length == 1 ? 0 : -1);
+        if (products.length == 1 || primes.length == 0) return holders;
+
+        // group consecutive primes into moduli, such that (remainder << 32 | limb) fits into a long
+        long[] moduli = new long[primes.length];
+        int[] groups = new int[primes.length];
+        int count = 0;
+        for (int i = 0; i < primes.length; i++) {
+            if (count == 0 || Integer.MAX_VALUE < moduli[count - 1] * primes[i]) moduli[count++] = 1;
+            moduli[count - 1] *= primes[i];
+            groups[i] = count - 1;
+        }
+
+        long[] remainders = new long[count];
+        for (int f = 0; f < products.length; f++) {
+            Arrays.fill(remainders, 0);
+            // big-endian, regardless of the order of the product buffer
+            ByteBuffer product = products[f].duplicate();
+            int b = product.position();
+            // leading bytes of a partial limb
+            for (; (product.limit() - b) % Integer.BYTES != 0; b++) {
+                long value = product.get(b) & 0xFF;
+                for (int m = 0; m < count; m++) {
+                    remainders[m] = (remainders[m] << Byte.SIZE | value) % moduli[m];
+                }
+            }
+            for (; b < product.limit(); b += Integer.BYTES) {
+                long limb = product.getInt(b) & 0xFFFFFFFFL;
+                for (int m = 0; m < count; m++) {
+                    remainders[m] = (remainders[m] << Integer.SIZE | limb) % moduli[m];
+                }
+            }
+
+            for (int i = 0; i < primes.length; i++) {
+                if (remainders[groups[i]] % primes[i] == 0) {
+                    if (0 <= holders[i]) throw new IllegalStateException("products " + holders[i] + " and " + f + " are both divisible by " + primes[i]);
+                    holders[i] = f;
+                }
+            }
+        }
+        return holders;
     }
 
     /**
-     * Computes all prime-powers (excluding 2) for an LCM of up to {@link #LIMIT} and distributes the factors into
-     * 2 disjoint and approximately equal sets (based on the magnitude of the products).
+     * Computes all prime-powers (excluding 2) for an LCM of up to a limit and distributes the factors into a requested
+     * number of disjoint and approximately equal sets (based on the magnitude of the products).
      * Note that all prime powers for primes p '3 <= p <= sqrt(LIMIT)` must be in the same set. Any other prime will
      * only be a prime-power exponent of 1, as a prime-power exponent of 2 will be larger than the supported limit
      * (for LIMIT = 2^31 - 1, exponents of 2 would overflow).
      *
-     * @return an array of 2 prime-power factor sets
+     * @param limit             LCM limit
+     * @param requestedProducts number of sets; 0 for the fewest whose products fit into a {@link BigInteger}
+     * @param checkpoints       checkpoints of the prime-powers, or null
+     * @return an array of prime-power factor sets
      */
-    private static int[][] computeFactorSets() {
-        StopWatch watch = StopWatch.create();
+    private static int[][] computeFactorSets(int limit, int requestedProducts, Checkpoints checkpoints) {
+        // Computed prime-powers up to the limit, in ascending order of their primes
+        int[] restored = checkpoints == null ? null : checkpoints.readPrimePowers();
+        if (restored != null) {
+            log.info("Restored {} prime powers from checkpoint; skipped sieving", String.format("%,d", restored.length));
+        }
+        int[] primePowers = restored != null ? restored : sievePrimePowers(limit, checkpoints);
+
+        // the prime-powers of primes p '3 <= p <= sqrt(LIMIT)` are the first factors, and are partitioned as a single unit
+        int smallPrimes = smallPrimeCount(limit);
+        double smallMagnitude = 0;
+        for (int i = 0; i < smallPrimes; i++) {
+            smallMagnitude += log(primePowers[i]);
+        }
+        double unitMagnitude = smallMagnitude;
+
+        // units in descending order of magnitude: the small prime-powers, followed by the largest remaining prime-powers
+        int units = primePowers.length - smallPrimes + 1;
+        IntToDoubleFunction magnitude = u -> u == 0 ? unitMagnitude : log(primePowers[primePowers.length - u]);
+        int[] assignment = partition(units, magnitude, "prime-power", requestedProducts);
+
+        // distribute the prime-powers into their assigned sets
+        int[] sizes = new int[Arrays.stream(assignment).max().orElse(0) + 1];
+        sizes[assignment[0]] += smallPrimes;
+        for (int u = 1; u < units; u++) {
+            sizes[assignment[u]]++;
+        }
+        int[][] factorSets = new int[sizes.length][];
+        for (int f = 0; f < factorSets.length; f++) {
+            factorSets[f] = new int[sizes[f]];
+        }
+        int[] positions = new int[sizes.length];
+        for (int i = 0; i < smallPrimes; i++) {
+            factorSets[assignment[0]][positions[assignment[0]]++] = primePowers[i];
+        }
+        for (int u = 1; u < units; u++) {
+            factorSets[assignment[u]][positions[assignment[u]]++] = primePowers[primePowers.length - u];
+        }
+        return factorSets;
+    }
+
+    /**
+     * Computes all prime-powers (excluding 2) up to a limit with the configured {@link #SIEVE}
+     *
+     * @param limit       LCM limit
+     * @param checkpoints checkpoints to write the prime-powers to, or null
+     * @return odd prime-powers, in ascending order of their primes
+     */
+    private static int[] sievePrimePowers(int limit, Checkpoints checkpoints) {
+        log.info("Computing primes and their respective exponents ({} sieve)...", SIEVE);
+        StopWatch watch = StopWatch.createStarted();
 
-        // The last index that a prime was inserted into; after the prime-power computation, this is the effective
-        // length of the following prime-powers array.
-        int primeIndex = 0;
-        // Computed prime-powers up to the LIMIT; note that not all positions are used in this array.
-        // See initialization comments below.
         int[] primePowers;
-        // compute the prime-powers
-        {
-            log.info("Computing primes and their respective exponents...");
-            watch.reset();
-            watch.start();
+        try (GenerationMetrics.Phase ignored = METRICS.phase("sieve")) {
+            primePowers = sieve(limit);
+        }
 
-            // An upper bound of the prime-counting function, pi(x), is used: pi(x) = x/(log x) * (1 + 3/(2log x))
-            // It cannot be precisely known ahead-of-time how many prime powers that will be discovered during sieving,
-            // but an approximation of an upper bound would be close. An approximation is preferred here, as
-            // List<Integer>'s required memory and computational has a significantly larger overhead than the memory
-            // overhead from a mere approximation.
-            primePowers = new int[toIntExact(round(ceil((double) LIMIT / log(LIMIT) * (1.0D + 1.5D / log(LIMIT)))))];
-
-            // BitSet is 8x more memory space efficient than a boolean[] as the JVM uses a byte for each boolean.
-            // This is indexed with odd numbers only; access with set[f(x)] with f(x)=floor((x-1)/2)
-            // (e.g 1 => set[0], 3 => set[1], ...).
-            BitSet sieve = new BitSet((LIMIT - 1) / 2 + 1);
-
-            // cached computed constants
-            double limitLog = log(LIMIT);
-            double limitSqrt = sqrt(LIMIT);
-
-            // compute primes using a sieve of eratosthenes
-            // iterate only odd non-unit (e.g. 1) numbers
-            //noinspection ConstantConditions
-            for (int n = 3; 0 <= n /* <-- int overflows */ && n <= LIMIT; n += 2) {
-                // translate number to an odd BitSet index
-                int fn = (n - 1) / 2;
-                // if not marked as composite, then it is prime
-                if (!sieve.get(fn)) {
-                    // mark all odd multiples of n as composite
-                    for (long m = (long) fn + (long) n; m < sieve.size(); m += n) { // incrementation is equal to 2n
-                        sieve.set((int) m);
-                    }
+        watch.stop();
+        log.info("Computed {} prime powers; {} elapsed", String.format("%,d", primePowers.length), watch.formatTime());
 
-                    // compute the prime-power n^floor(log(limit) / log(n)); thanks Java for Math#pow(int, int)
-                    int primePower = 1;
-                    for (int i = 0, max = (int) round(floor(limitLog / log(n))); i < max; i++) {
-                        primePower *= n;
-                    }
+        if (checkpoints != null) {
+            checkpoints.writePrimePowers(primePowers);
+        }
+        return primePowers;
+    }
 
-                    // a cautious check to ensure that all prime-powers for primes above sqrt(LIMIT) have an exponent of 1
-                    assert !(limitSqrt <= n) || primePower == n : String.format("expected prime power exponent to be one (prime: %d; prime power: %d)", n, primePower);
-                    // ensure there is a position available in the primePowers array
-                    assert primeIndex < primePowers.length : "upper bound approximation of pi(x) was too small";
+    /**
+     * Computes all prime-powers (excluding 2) up to a limit with the configured {@link #SIEVE}
+     *
+     * @param limit LCM limit
+     * @return odd prime-powers, in ascending order of their primes
+     */
+    private static int[] sieve(int limit) {
+        int[] primePowers;
+        switch (SIEVE) {
+            case "segmented":
+                SegmentedSieve sieve = new SegmentedSieve(1, limit, SIEVE_SEGMENT_BYTES);
+                log.info("Sieving {} segments of {} bytes", String.format("%,d", sieve.segments()), String.format("%,d", SIEVE_SEGMENT_BYTES));
+                primePowers = sieve.primePowers();
+                break;
+            case "eratosthenes":
+                primePowers = sieveOfEratosthenes(limit);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown sieve: " + SIEVE);
+        }
+        return primePowers;
+    }
 
-                    // insert prime power to the array
-                    primePowers[primeIndex] = primePower;
-                    // update the prime-power insertion index
-                    primeIndex++;
+    /**
+     * Counts the odd primes p '3 <= p <= sqrt(limit)`, whose prime-powers may have exponents larger than 1
+     *
+     * @param limit LCM limit
+     * @return number of small odd primes
+     */
+    private static int smallPrimeCount(int limit) {
+        int count = 0;
+        for (int n = 3; (long) n * n <= limit; n += 2) {
+            boolean prime = true;
+            for (int d = 3; prime && d * d <= n; d += 2) {
+                prime = n % d != 0;
+            }
+            if (prime) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Partitions units of factors into sets of approximately equal magnitude. Unfortunately, the product of all the
+     * prime-powers can exceed Integer.MAX_VALUE bits, and must be split into at least 2 distinct sets for the integer
+     * range; more sets may be requested. Note that all prime-powers whose prime is in the range
+     * '3 <= p <= sqrt(LIMIT)` must be grouped together, and must therefore be part of a single unit.
+     * <p>
+     * Each unit, in order, is greedily assigned to the set with the smallest total magnitude so far. As units are
+     * ordered by descending magnitude, this is the longest processing time (LPT) heuristic; since units are tiny
+     * compared to the sets, the sets are practically equal.
+     *
+     * @param units     number of units
+     * @param magnitude natural logarithm magnitude of each unit, in descending order of magnitude
+     * @param unitName          unit description for logging
+     * @param requestedProducts number of sets; 0 for the fewest whose products fit into a {@link BigInteger}
+     * @return the set index of each unit
+     */
+    private static int[] partition(int units, IntToDoubleFunction magnitude, String unitName, int requestedProducts) {
+        try (GenerationMetrics.Phase ignored = METRICS.phase("partition")) {
+            return partition(units, magnitude, unitName, requestedProducts, StopWatch.createStarted());
+        }
+    }
+
+    /**
+     * See {@link #partition(int, IntToDoubleFunction, String, int)}
+     *
+     * @param units             number of units
+     * @param magnitude         natural logarithm magnitude of each unit, in descending order of magnitude
+     * @param unitName          unit description for logging
+     * @param requestedProducts number of sets; 0 for the fewest whose products fit into a {@link BigInteger}
+     * @param watch             started stop watch of the partitioning
+     * @return the set index of each unit
+     */
+    private static int[] partition(int units, IntToDoubleFunction magnitude, String unitName, int requestedProducts, StopWatch watch) {
+
+        double totalMagnitude = 0;
+        for (int u = 0; u < units; u++) {
+            totalMagnitude += magnitude.applyAsDouble(u);
+        }
+        long totalBits = round(ceil(totalMagnitude / log(2)));
+        log.info("Total base 2 magnitude: {}", String.format("%,d", totalBits));
+
+        // the fewest sets whose products fit into a BigInteger
+        int required = toIntExact(totalBits / Integer.MAX_VALUE + 1);
+        if (requestedProducts != 0 && requestedProducts < required) {
+            throw new IllegalArgumentException("at least " + required + " products are required; parity.products: " + requestedProducts);
+        }
+        int sets = requestedProducts == 0 ? required : requestedProducts;
+        log.info("Partitioning {} {} units into {} sets...", String.format("%,d", units), unitName, sets);
+
+        // binary min-heap of set indices ordered by total magnitude, then by index
+        double[] totals = new double[sets];
+        int[] counts = new int[sets];
+        int[] heap = IntStream.range(0, sets).toArray();
+        int[] assignment = new int[units];
+        for (int u = 0; u < units; u++) {
+            int set = heap[0];
+            assignment[u] = set;
+            totals[set] += magnitude.applyAsDouble(u);
+            counts[set]++;
+
+            // sift the increased root down
+            for (int i = 0; ; ) {
+                int smallest = i;
+                for (int child = 2 * i + 1; child <= 2 * i + 2 && child < sets; child++) {
+                    int a = heap[child];
+                    int b = heap[smallest];
+                    if (totals[a] < totals[b] || totals[a] == totals[b] && a < b) smallest = child;
                 }
+                if (smallest == i) break;
+                heap[i] = heap[smallest];
+                heap[smallest] = set;
+                i = smallest;
             }
+        }
 
-            watch.stop();
-            log.info("Computed {} prime powers; {} elapsed", String.format("%,d", primeIndex), watch.formatTime());
+        watch.stop();
+        long[] setBits = Arrays.stream(totals).mapToLong(total -> round(ceil(total / log(2)))).toArray();
+        log.info("Partitioned into magnitudes {} ({} count: {}); {} elapsed",
+                Arrays.stream(setBits).mapToObj(bits -> String.format("%,d", bits)).toArray(String[]::new),
+                unitName,
+                Arrays.stream(counts).mapToObj(count -> String.format("%,d", count)).toArray(String[]::new),
+                watch.formatTime()
+        );
+        for (int f = 0; f < sets; f++) {
+            if (Integer.MAX_VALUE <= setBits[f]) {
+                throw new IllegalStateException("product " + f + " exceeds the maximum BigInteger magnitude; increase parity.products");
+            }
         }
 
-        // Unfortunately, the product of all the prime-powers can exceed Integer.MAX_VALUE. The prime-powers must be
-        // split into at least 2 distinct sets for the integer range. Note that during this split process, all
-        // prime-powers whose prime is in the range '3 <= p <= sqrt(LIMIT)` must be grouped together.
-        // If no split is necessary, the value will be negative
-        int splitIndex;
-        // split the prime-powers into 2 sets of equal magnitude as a product
-        {
-            log.info("Splitting prime power factors equally into 2 numbers...");
+        return assignment;
+    }
+
+    /**
+     * Computes all prime-powers (excluding 2) for an LCM of up to a limit with a {@link SegmentedSieve} that is
+     * pipelined into multiplication workers; each sieved segment is multiplied into a leaf product while the remaining
+     * segments are still being sieved. The leaves are distributed into a requested number of disjoint and approximately
+     * equal sets, as described in {@link #computeFactorSets(int, int, Checkpoints)}.
+     *
+     * @param limit             LCM limit
+     * @param requestedProducts number of sets; 0 for the fewest whose products fit into a {@link BigInteger}
+     * @param checkpoints       checkpoints of the leaf products, or null
+     * @return an array of leaf product sets
+     * @throws InterruptedException if interrupted while waiting for the pipeline
+     */
+    private static Natural[][] computeLeafSets(int limit, int requestedProducts, Checkpoints checkpoints) throws InterruptedException {
+        // compute the leaf products
+        Natural[] restored = checkpoints == null ? null : checkpoints.readLeaves();
+        if (restored != null) {
+            log.info("Restored {} leaf products from checkpoint; skipped sieving", String.format("%,d", restored.length));
+        }
+        Natural[] leaves = restored != null ? restored : sieveLeaves(limit, checkpoints);
+
+        // each leaf is a unit; the first leaf contains all prime-powers of primes p '3 <= p <= sqrt(LIMIT)`
+        int[] order = IntStream.range(0, leaves.length)
+                .boxed()
+                .sorted(Comparator.comparingLong((Integer leaf) -> leaves[leaf].bitLength()).reversed())
+                .mapToInt(Integer::intValue)
+                .toArray();
+        int[] assignment = partition(order.length, u -> leaves[order[u]].bitLength() * log(2), "leaf", requestedProducts);
+
+        // distribute the leaves into their assigned sets, in ascending order of their primes
+        int[] leafSets = new int[leaves.length];
+        for (int u = 0; u < order.length; u++) {
+            leafSets[order[u]] = assignment[u];
+        }
+        return IntStream.rangeClosed(0, Arrays.stream(assignment).max().orElse(0))
+                .mapToObj(f -> IntStream.range(0, leaves.length)
+                        .filter(leaf -> leafSets[leaf] == f)
+                        .mapToObj(leaf -> leaves[leaf])
+                        .toArray(Natural[]::new))
+                .toArray(Natural[][]::new);
+    }
+
+    /**
+     * Computes the leaf products of all prime-powers (excluding 2) up to a limit with a pipelined
+     * {@link SegmentedSieve}
+     *
+     * @param limit       LCM limit
+     * @param checkpoints checkpoints to write the leaf products to, or null
+     * @return leaf products, in ascending order of their primes
+     * @throws InterruptedException if interrupted while waiting for the pipeline
+     */
+    private static Natural[] sieveLeaves(int limit, Checkpoints checkpoints) throws InterruptedException {
+        if (!"segmented".equals(SIEVE)) {
+            throw new IllegalArgumentException("streaming requires the segmented sieve; disable it with -Dparity.stream=false");
+        }
+        log.info("Computing primes and multiplying their respective exponents (pipelined segmented sieve)...");
+        StopWatch watch = StopWatch.createStarted();
+
+        SegmentedSieve sieve = new SegmentedSieve(1, limit, SIEVE_SEGMENT_BYTES);
+        // all prime-powers for primes p '3 <= p <= sqrt(limit)` must be in the first leaf to be kept together
+        if (2L * SIEVE_SEGMENT_BYTES * Byte.SIZE < sqrt(limit)) {
+            throw new IllegalArgumentException("sieve segments must span at least sqrt(limit) numbers when streaming");
+        }
+        log.info("Sieving {} segments of {} bytes into a queue of {} batches for {} multiplication workers",
+                String.format("%,d", sieve.segments()),
+                String.format("%,d", SIEVE_SEGMENT_BYTES),
+                STREAM_QUEUE,
+                STREAM_WORKERS
+        );
+        Natural[] leaves;
+        try (GenerationMetrics.Phase ignored = METRICS.phase("sieve")) {
+            leaves = new PrimePowerPipeline(sieve, STREAM_WORKERS, STREAM_QUEUE, PRODUCT_MULTIPLIER).leaves();
+        }
+
+        watch.stop();
+        log.info("Computed {} leaf products; {} elapsed", String.format("%,d", leaves.length), watch.formatTime());
+
+        if (checkpoints != null) {
             watch.reset();
             watch.start();
-
-            // create a cumulative magnitude array
-            double[] cumulativeMagnitude = new double[primeIndex];
-            double cumulative = 0;
-            for (int i = 0; i < primeIndex; i++) {
-                cumulative += log(primePowers[i]);
-                cumulativeMagnitude[i] = cumulative;
+            try (GenerationMetrics.Phase ignored = METRICS.phase("checkpoint-write")) {
+                checkpoints.writeLeaves(leaves);
             }
+            watch.stop();
+            log.info("Checkpointed leaf products; {} elapsed", watch.formatTime());
+        }
+        return leaves;
+    }
+
+    /**
+     * Computes all prime-powers (excluding 2) up to a limit with a single-threaded sieve of Eratosthenes over a single
+     * {@link BitSet}.
+     *
+     * @param limit LCM limit
+     * @return odd prime-powers, in ascending order of their primes
+     */
+    static int[] sieveOfEratosthenes(int limit) {
+        // The last index that a prime was inserted into; after the prime-power computation, this is the effective
+        // length of the following prime-powers array.
+        int primeIndex = 0;
 
-            log.info("Total base 2 magnitude: {}", String.format("%,d", round(ceil(cumulativeMagnitude[cumulativeMagnitude.length - 1] / log(2)))));
+        // An upper bound of the prime-counting function, pi(x), is used: pi(x) = x/(log x) * (1 + 3/(2log x))
+        // It cannot be precisely known ahead-of-time how many prime powers that will be discovered during sieving,
+        // but an approximation of an upper bound would be close. An approximation is preferred here, as
+        // List<Integer>'s required memory and computational has a significantly larger overhead than the memory
+        // overhead from a mere approximation.
+        // Note that not all positions are used in this array.
+        int[] primePowers = new int[toIntExact(round(ceil((double) limit / log(limit) * (1.0D + 1.5D / log(limit)))))];
+
+        // BitSet is 8x more memory space efficient than a boolean[] as the JVM uses a byte for each boolean.
+        // This is indexed with odd numbers only; access with set[f(x)] with f(x)=floor((x-1)/2)
+        // (e.g 1 => set[0], 3 => set[1], ...).
+        BitSet sieve = new BitSet((limit - 1) / 2 + 1);
+
+        // cached computed constants
+        double limitLog = log(limit);
+        double limitSqrt = sqrt(limit);
+
+        // compute primes using a sieve of eratosthenes
+        // iterate only odd non-unit (e.g. 1) numbers
+        //noinspection ConstantConditions
+        for (int n = 3; 0 <= n /* <-- int overflows */ && n <= limit; n += 2) {
+            // translate number to an odd BitSet index
+            int fn = (n - 1) / 2;
+            // if not marked as composite, then it is prime
+            if (!sieve.get(fn)) {
+                // mark all odd multiples of n as composite
+                for (long m = (long) fn + (long) n; m < sieve.size(); m += n) { // incrementation is equal to 2n
+                    sieve.set((int) m);
+                }
 
-            // check if a split is necessary
-            if (Integer.MAX_VALUE <= cumulativeMagnitude[cumulativeMagnitude.length - 1] / log(2)) {
-                // efficiently search for a split point where the magnitude of the product of the sets are approximately the same
-                splitIndex = Arrays.binarySearch(cumulativeMagnitude, cumulativeMagnitude[cumulativeMagnitude.length - 1] / 2);
-                if (splitIndex < 0) splitIndex = ~splitIndex - 1;
+                int primePower = primePower(n, limitLog);
 
-                watch.stop();
-                log.info("Split into magnitudes {} (prime-power count: {}); {} elapsed",
-                        new String[]{
-                                String.format("%,d", round(ceil(cumulativeMagnitude[splitIndex] / log(2)))),
-                                String.format("%,d", round(ceil((cumulativeMagnitude[cumulativeMagnitude.length - 1] - cumulativeMagnitude[splitIndex]) / log(2))))
-                        },
-                        new String[]{
-                                String.format("%,d", splitIndex),
-                                String.format("%,d", primeIndex - splitIndex)
-                        },
-                        watch.formatTime()
-                );
-            } else {
-                splitIndex = -1;
+                // a cautious check to ensure that all prime-powers for primes above sqrt(LIMIT) have an exponent of 1
+                assert !(limitSqrt < n) || primePower == n : String.format("expected prime power exponent to be one (prime: %d; prime power: %d)", n, primePower);
+                // ensure there is a position available in the primePowers array
+                assert primeIndex < primePowers.length : "upper bound approximation of pi(x) was too small";
 
-                watch.stop();
-                log.info("No split necessary; {} elapsed", watch.formatTime());
+                // insert prime power to the array
+                primePowers[primeIndex] = primePower;
+                // update the prime-power insertion index
+                primeIndex++;
             }
         }
 
-        // no split necessary
-        if (splitIndex < 0) {
-            // remove trailing empty values
-            return new int[][]{
-                    Arrays.copyOfRange(primePowers, 0, primeIndex)
-            };
-        } else {
-            // split the prime-powers based on the determined split location
-            return new int[][]{
-                    Arrays.copyOfRange(primePowers, 0, splitIndex),
-                    Arrays.copyOfRange(primePowers, splitIndex, primeIndex)
-            };
+        // remove trailing empty values
+        return Arrays.copyOf(primePowers, primeIndex);
+    }
+
+    /**
+     * Computes the largest power of a prime that does not exceed a limit, i.e. p^floor(log(limit) / log(p)).
+     *
+     * @param prime    prime p
+     * @param limitLog natural logarithm of the limit
+     * @return prime-power
+     */
+    static int primePower(int prime, double limitLog) {
+        // thanks Java for Math#pow(int, int)
+        int primePower = 1;
+        for (int i = 0, max = (int) round(floor(limitLog / log(prime))); i < max; i++) {
+            primePower *= prime;
         }
+        return primePower;
     }
 
     /**
@@ -297,14 +1032,16 @@ public class LcmParitySourceGenerator {
      * together into a {@link BigInteger}. Each product is sequentially computed in parallel. Factors are multiplied
      * together in an order that is more efficient than naive sequential multiplication. Since multiplication
      * time-complexity is based off of the largest factor involved, minimizing the largest factor (i.e. roughly equal
-     * factors) at each step reduces the overall time-complexity of the final product.
+     * factors) at each step reduces the overall time-complexity of the final product; see {@link ProductTree}.
      *
-     * @param factorSets array of integer factors
-     * @return {@link BigInteger} products
+     * @param factorSets  array of integer factors
+     * @param checkpoints checkpoints of the product subtrees, or null
+     * @param scratch     scratch space of a memory budget, or null
+     * @return {@link BigInteger#toByteArray()} bytes of the products
      */
-    private static BigInteger[] products(int[][] factorSets) {
+    private static ByteBuffer[] products(int[][] factorSets, Checkpoints checkpoints, ScratchSpace scratch) {
         // computed products
-        BigInteger[] products = new BigInteger[factorSets.length];
+        ByteBuffer[] products = new ByteBuffer[factorSets.length];
 
         // compute the products
         for (int f = 0; f < factorSets.length; f++) {
@@ -314,98 +1051,141 @@ public class LcmParitySourceGenerator {
 
             log.info("Initializing factors...");
             watch.start();
-            // sort numbers before boxing, for performance
-            Arrays.sort(factorSets[f]);
-            // box to BigInteger objects
-            BigInteger[] factors = Arrays.stream(factorSets[f]).parallel().mapToObj(BigInteger::valueOf).toArray(BigInteger[]::new);
+            // sort numbers such that factors of similar size are multiplied together
+            Arrays.parallelSort(factorSets[f]);
+            log.info("Factors sorted; {} elapsed", watch.formatTime());
+
+            Checkpoints.Tree store = checkpoints == null ? null : checkpoints.tree(f);
+            products[f] = product(f, new ProductTree(factorSets[f], TREE_SEQUENTIAL_BITS, PRODUCT_MULTIPLIER, store, scratch), factorSets[f].length, store, scratch, watch);
             // release factors set to be garbage collected
             factorSets[f] = null;
-            log.info("Factors sorted and converted to big integers; {} elapsed", watch.formatTime());
-
-            // iteratively multiply factors in parallel
-            StopWatch stepWatch = StopWatch.create();
-            for (int length = factors.length; length != 1; ) {
-                // reset stop watch for the current iteration
-                stepWatch.reset();
-                stepWatch.start();
-
-                // sort factors and release old array elements to be garbage collected
-                Arrays.parallelSort(factors, 0, length);
-
-                // thanks for closures, Java
-                int finalLength = length;
-                // multiply smallest numbers with largest numbers in parallel
-                IntStream.range(0, length / 2)
-                        .parallel()
-                        .unordered()
-                        .forEach(i -> {
-                            int l = finalLength - 1 /* one less because 0 indexed */ - i /* go backwards */ - (finalLength % 2) /* skip last one */;
-                            factors[i] = factors[i].multiply(factors[l]);
-                            factors[l] = null;
-                        });
-
-                // shift the prime that was not used in the current multiplication step
-                if (length % 2 != 0) {
-                    factors[length / 2] = factors[length - 1];
-                    factors[length - 1] = null;
-                }
+        }
 
-                stepWatch.stop();
-                log.info("Multiplied {} factors; {} elapsed", length, stepWatch.formatTime());
+        return products;
+    }
 
-                // shrink number of factors
-                length = length / 2 + length % 2;
+    /**
+     * Computes products for each set of partial products (e.g. leaf products from
+     * {@link #computeLeafSets(int, int, Checkpoints)}). See {@link #products(int[][], Checkpoints, ScratchSpace)}.
+     *
+     * @param factorSets  array of natural factors
+     * @param checkpoints checkpoints of the product subtrees, or null
+     * @param scratch     scratch space of a memory budget, or null; sets are spilled until they are multiplied
+     * @return {@link BigInteger#toByteArray()} bytes of the products
+     */
+    private static ByteBuffer[] products(Natural[][] factorSets, Checkpoints checkpoints, ScratchSpace scratch) {
+        // computed products
+        ByteBuffer[] products = new ByteBuffer[factorSets.length];
+
+        // only the set being multiplied is held in the heap
+        ScratchSpace.Spilled[][] spilledSets = new ScratchSpace.Spilled[factorSets.length][];
+        if (scratch != null) {
+            for (int f = 1; f < factorSets.length; f++) {
+                spilledSets[f] = Arrays.stream(factorSets[f]).map(scratch::spill).toArray(ScratchSpace.Spilled[]::new);
+                factorSets[f] = null;
             }
+        }
 
-            // the only element in factors remaining is the final computed product
-            BigInteger product = factors[0];
-            // return the product
-            products[f] = product;
+        // compute the products
+        for (int f = 0; f < factorSets.length; f++) {
+            log.info("Multiplying product {} of {}", f + 1, factorSets.length);
+            StopWatch watch = StopWatch.create();
+            watch.start();
 
-            watch.stop();
-            log.info("Product computed; digits: {}; {} elapsed",
-                    String.format("%,d", round(ceil(product.bitLength() * Math.log(2) / Math.log(10)))),
-                    watch.formatTime()
-            );
+            if (spilledSets[f] != null) {
+                factorSets[f] = Arrays.stream(spilledSets[f]).map(ScratchSpace.Spilled::restore).toArray(Natural[]::new);
+                spilledSets[f] = null;
+            }
+            Checkpoints.Tree store = checkpoints == null ? null : checkpoints.tree(f);
+            products[f] = product(f, new ProductTree(factorSets[f], TREE_SEQUENTIAL_BITS, PRODUCT_MULTIPLIER, store, scratch), factorSets[f].length, store, scratch, watch);
+            // release factors set to be garbage collected
+            factorSets[f] = null;
         }
 
         return products;
     }
 
     /**
-     * Generates and writes {@link #PARITY_JAVA} with the BigInteger products encoded inside. This is technically less
-     * space efficient, as all strings in classes are UTF-8 encoded by the Java compiler. In order to (relatively)
-     * efficiently store them, only the characters in the range 0 to 127 (inclusive) are used, as they only take a
-     * single byte, whereas higher numbers use more than 1 bytes. This storage ratio is 1/8th less efficient, as a bit
-     * must be set to 0 each time. Fortunately, storing the compiled .class in a .jar will yield compression back to
-     * the approximately the original product bytes.
+     * Multiplies factors together in parallel with a balanced {@link ProductTree}; see
+     * {@link #products(int[][], Checkpoints, ScratchSpace)}. The product is only converted to bytes once it is
+     * complete; with scratch space, the bytes are written to a scratch file instead of the heap.
      *
-     * @param products products to serialize
-     */
-    private static void write(BigInteger[] products) {
-        // byte lookup table for Java-legal UTF-8 escape sequences
-        byte[][] escapedChar = new byte[128][];
-        {
-            String[] lookup = IntStream.rangeClosed(0, 127).mapToObj(i -> String.valueOf((char) i)).toArray(String[]::new);
-            lookup['\0'] = "\\u0000";
-            lookup['\b'] = "\\b";
-            lookup['\n'] = "\\n";
-            lookup['\r'] = "\\r";
-            lookup['\t'] = "\\t";
-            lookup['\f'] = "\\f";
-            lookup['\"'] = "\\\"";
-            lookup['\\'] = "\\\\";
-            // write lookups as UTF-8 byte sequences
-            for (int i = 0; i < lookup.length; i++) {
-                escapedChar[i] = lookup[i].getBytes(StandardCharsets.UTF_8);
-            }
-        }
-
-        // UTF-8 bytecode encoded character lengths
-        int[] utf8lengths = new int[128];
-        Arrays.fill(utf8lengths, 1);
-        utf8lengths['\0'] = 2; // UTF-8 encoding for '\0' uses bytes C0 80
+     * @param index   product index
+     * @param tree    product tree of the factors
+     * @param count   number of factors
+     * @param store   subtree checkpoints of the tree, or null
+     * @param scratch scratch space of a memory budget, or null
+     * @param watch   started stop watch of the product computation
+     * @return {@link BigInteger#toByteArray()} bytes of the product of the factors
+     */
+    private static ByteBuffer product(int index, ProductTree tree, int count, Checkpoints.Tree store, ScratchSpace scratch, StopWatch watch) {
+        log.info("Multiplying {} factors ({} multiplication, {} multiplication above {} bits)...",
+                String.format("%,d", count),
+                MULTIPLIER_SMALL,
+                MULTIPLIER,
+                String.format("%,d", MULTIPLIER_THRESHOLD_BITS)
+        );
+        long bitLength;
+        ByteBuffer product;
+        try (GenerationMetrics.Phase phase = METRICS.phase("product").product(index)) {
+            Natural natural = tree.product();
+            bitLength = natural.bitLength();
+            phase.bits(bitLength);
+            product = scratch != null ? scratch.bytes(natural) : ByteBuffer.wrap(natural.toBigInteger().toByteArray());
+            natural.release();
+        }
+        METRICS.levels(index, tree.levels());
+
+        if (store != null && store.restoredNodes() != 0) {
+            log.info("Restored {} subtrees from checkpoints; skipped multiplying {} of {} product bits",
+                    String.format("%,d", store.restoredNodes()),
+                    String.format("%,d", Math.min(store.restoredBits(), bitLength)),
+                    String.format("%,d", bitLength)
+            );
+        }
+
+        // report the time spent on each level of the tree
+        for (ProductTree.Level level : tree.levels()) {
+            log.info("Multiplied level {} ({} multiplications; product bits: {}{}{}); {} elapsed, {} multiplying",
+                    level.getDepth(),
+                    String.format("%,d", level.getMultiplications()),
+                    String.format("%,d", level.getProductBits()),
+                    level.getAllocatedBytes() < 0 ? "" : String.format("; allocated: %,d MB", level.getAllocatedBytes() / (1024 * 1024)),
+                    level.getPeakHeapBytes() < 0 ? "" : String.format("; GCs: %,d (%,d ms); peak heap: %,d MB", level.getCollections(), level.getGcMillis(), level.getPeakHeapBytes() / (1024 * 1024)),
+                    DurationFormatUtils.formatDurationHMS(TimeUnit.NANOSECONDS.toMillis(level.getElapsedNanos())),
+                    DurationFormatUtils.formatDurationHMS(TimeUnit.NANOSECONDS.toMillis(level.getMultiplyNanos()))
+            );
+        }
+
+        watch.stop();
+        log.info("Product computed; digits: {}; {} elapsed",
+                String.format("%,d", round(ceil(bitLength * Math.log(2) / Math.log(10)))),
+                watch.formatTime()
+        );
 
+        return product;
+    }
+
+    /**
+     * Generates and writes {@link #PARITY_JAVA} with the BigInteger products encoded as 7-bit string literals in shard
+     * classes it references. This is technically less space efficient, as all strings in classes are UTF-8 encoded. In
+     * order to (relatively) efficiently store them, only the characters in the range 0 to 127 (inclusive) are used, as
+     * they only take a single byte, whereas higher numbers use more than 1 bytes. This storage ratio is 1/8th less
+     * efficient, as a bit must be set to 0 each time. Fortunately, storing the compiled .class in a .jar will yield
+     * compression back to the approximately the original product bytes.
+     * <p>
+     * Each shard holds up to {@link #SHARD_LITERALS} literals. Unless the {@link #SHARD_BACKEND} is "javac", the shard
+     * class files are written directly by a {@link ShardClassWriter}; otherwise, the shard sources are compiled in
+     * parallel by forked javac processes with a bounded heap, such that no single compilation holds the whole table.
+     * <p>
+     * If the {@link #PACKAGING} is "resource", neither of the above applies: the products are instead written to the
+     * {@link #PRODUCT_RESOURCE}, and {@link #PARITY_JAVA} only references it.
+     *
+     * @param products     {@link BigInteger#toByteArray()} bytes of the products of all tiers to serialize; released as
+     *                     they are encoded
+     * @param tierProducts index of the first product of each tier, followed by the number of products
+     */
+    private static void write(ByteBuffer[] products, int[] tierProducts) {
         // open template file as a template writer
         TemplateWriter templater;
         try {
@@ -417,17 +1197,38 @@ public class LcmParitySourceGenerator {
         // generate Java file with computed products
         //noinspection ResultOfMethodCallIgnored
         PARITY_JAVA.getParentFile().mkdirs();
+        // shard sources to compile, unless written as class files
+        List<File> sources = new ArrayList<>();
+        int shards = 0;
         try (PrintStream output = new PrintStream(new BufferedOutputStream(new FileOutputStream(PARITY_JAVA), 1024 * 1024 /* 1MB */), false, StandardCharsets.ISO_8859_1.name())) {
+            // write table limit
+            templater.seek(output, "LIMIT");
+            output.print(LIMIT);
+
+            // write tier limits and their products
+            templater.seek(output, "TIER_LIMITS");
+            output.print(Arrays.stream(TIERS).mapToObj(String::valueOf).collect(Collectors.joining(", ")));
+            templater.seek(output, "TIER_PRODUCTS");
+            output.print(Arrays.stream(tierProducts).mapToObj(String::valueOf).collect(Collectors.joining(", ")));
+
             // write product counts
             templater.seek(output, "PRODUCTS_COUNT");
             output.print(products.length);
 
+            // write product resource name
+            boolean resource = "resource".equals(PACKAGING);
+            templater.seek(output, "PRODUCT_RESOURCE");
+            output.print(resource ? '"' + PRODUCT_RESOURCE.getName() + '"' : "null");
+
+            // write product fingerprint
+            templater.seek(output, "PRODUCT_FINGERPRINT");
+            output.print('"' + fingerprint(products) + '"');
+
             // write expected byte lengths of each product
             templater.seek(output, "PRODUCT_BYTE_LENGTHS");
             int[] byteLengths = new int[products.length];
             for (int i = 0; i < products.length; i++) {
-                // ceiling of bytes
-                byteLengths[i] = products[i].bitLength() / 8 + 1;
+                byteLengths[i] = products[i].remaining();
                 // write the byte length
                 output.print(byteLengths[i]);
 
@@ -437,85 +1238,58 @@ public class LcmParitySourceGenerator {
                 }
             }
 
-            // write computed products
+            // write computed products; each product lists its shards
             StopWatch watch = StopWatch.create();
-            templater.seek(output, "PRODUCT_BYTES");
-            for (int p = 0; p < products.length; p++) {
-                log.info("Encoding product {} of {}", p + 1, products.length);
-                watch.reset();
+            templater.seek(output, "PRODUCT_SHARDS");
+            deleteShards();
+            if (resource) {
+                log.info("Writing product resource: {}", PRODUCT_RESOURCE.getAbsolutePath());
                 watch.start();
-
-                // convert product to a byte buffer
-                ByteBuffer input = ByteBuffer.wrap(products[p].toByteArray());
-                // ensure byte lengths were correctly written
-                assert input.remaining() == byteLengths[p] : "unexpected encoded product byte length";
-                // release product to be garbage collected
-                products[p] = null;
-
-                output.println("            {");
-
-                // temporarily cached unused bits while encoding the product
-                int bits = 0;
-                // number of bits cached in the bits variable
-                int cachedBits = 0;
-                // encode into several UTF-8 strings; 7 bits are encoded at a time
-                while (input.hasRemaining() || 0 < cachedBits) {
-                    // start of string
-                    output.print("                \"");
-
-                    // write up to a maximum of 0xFFFE characters
-                    int length = 0;
-                    while (input.hasRemaining() || 0 < cachedBits) {
-                        // if there are no cached bits, obtain more if there are any
-                        if (cachedBits < 7 && input.hasRemaining()) {
-                            bits = (bits << 8) | (input.get() & 0xFF);
-                            cachedBits += 8;
-                        }
-
-                        // read the next 7 bits
-                        byte b;
-                        if (7 <= cachedBits) {
-                            // read highest 7 bits
-                            b = (byte) ((bits >> (cachedBits - 7)) & 0x7F);
-                        } else {
-                            // read last bits, but make them start at the 7 bit mark
-                            b = (byte) ((bits << (7 - cachedBits)) & 0x7F); // & 0x7F should be redundant...
-
-                            assert !input.hasRemaining() : "expected end of byte buffer while reading last bits";
+                try (GenerationMetrics.Phase ignored = METRICS.phase("resource-write")) {
+                    writeResource(products);
+                }
+                watch.stop();
+                log.info("Wrote product resource; {} elapsed", watch.formatTime());
+            } else {
+                for (int p = 0; p < products.length; p++) {
+                    log.info("Encoding product {} of {}", p + 1, products.length);
+                    watch.reset();
+                    watch.start();
+
+                    try (GenerationMetrics.Phase ignored = METRICS.phase("encode").product(p).bits((long) products[p].remaining() * Byte.SIZE)) {
+                        ProductEncoder encoder = new ProductEncoder(products[p]);
+                        // release product to be garbage collected once encoded
+                        products[p] = null;
+
+                        output.print('{');
+                        for (int from = 0; from < encoder.literals(); from += SHARD_LITERALS) {
+                            if (from != 0) output.print(", ");
+                            output.print(shards);
+                            int to = Math.min(from + SHARD_LITERALS, encoder.literals());
+                            if ("bytecode".equals(SHARD_BACKEND)) {
+                                writeShardClass(shards, encoder, from, to);
+                            } else {
+                                sources.add(writeShard(shards, encoder, from, to));
+                            }
+                            shards++;
                         }
-
-                        // break if this string length will exceed 0xFFFE bytes
-                        if (0xFFFE < length + utf8lengths[b]) {
-                            break;
+                        output.print('}');
+                        // add another comma if there is another product
+                        if (p != products.length - 1) {
+                            output.print(", ");
                         }
 
-                        // write character as UTF-8 escape sequences
-                        output.write(escapedChar[b]);
-                        // add the bytecode UTF-8 encoding length
-                        length += utf8lengths[b];
-
-                        // remove bits
-                        bits &= ~(0x7F << (cachedBits - 7));
-                        cachedBits -= Math.min(cachedBits, 7);
+                        watch.stop();
+                        log.info("Encoded product as {} literals; {} elapsed", encoder.literals(), watch.formatTime());
                     }
-
-                    // end of string
-                    output.print("\"");
-                    // add another comma if there is another String next
-                    if (input.hasRemaining() || 0 < cachedBits) {
-                        output.print(",");
-                    }
-                    output.println();
-                }
-
-                output.print("            }");
-                // add another comma if there is another product
-                if (p != products.length - 1) {
-                    output.print(',');
                 }
+            }
 
-                watch.stop();
-                log.info("Encoded product; {} elapsed", watch.formatTime());
+            // write shard accessors
+            templater.seek(output, "SHARD_CASES");
+            for (int k = 0; k < shards; k++) {
+                output.println("            case " + k + ":");
+                output.println("                return ParityShard" + k + ".CHUNKS;");
             }
 
             // write rest of the template
@@ -523,5 +1297,175 @@ public class LcmParitySourceGenerator {
         } catch (IOException exception) {
             throw new RuntimeException("failed to write Parity class", exception);
         }
+
+        if (!sources.isEmpty()) {
+            log.info("Compiling {} shards with {} workers", sources.size(), SHARD_WORKERS);
+            StopWatch watch = StopWatch.createStarted();
+            try (GenerationMetrics.Phase ignored = METRICS.phase("shard-compile")) {
+                ShardCompiler.compile(sources, OUTPUT_ROOT, SHARD_MEMORY, SHARD_WORKERS);
+            }
+            watch.stop();
+            log.info("Compiled shards; {} elapsed", watch.formatTime());
+        }
+    }
+
+    /**
+     * Deletes the shard sources and classes of any previous generation, such that no stale shards are packaged
+     */
+    private static void deleteShards() {
+        for (File directory : new File[]{SHARD_SOURCES, PRODUCT_RESOURCE.getParentFile()}) {
+            File[] files = directory.listFiles((dir, name) -> name.matches("ParityShard\\d+\\.(java|class)"));
+            if (files != null) {
+                for (File file : files) {
+                    //noinspection ResultOfMethodCallIgnored
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a shard class holding a range of the literals of a product
+     *
+     * @param shard   shard index
+     * @param encoder encoder of the product
+     * @param from    inclusive start literal
+     * @param to      exclusive end literal
+     * @return shard source file
+     * @throws IOException if the shard cannot be written
+     */
+    private static File writeShard(int shard, ProductEncoder encoder, int from, int to) throws IOException {
+        String separator = System.lineSeparator();
+        String header = String.join(separator,
+                "package " + LcmParitySourceGenerator.class.getPackage().getName() + ";",
+                "",
+                "/**",
+                " * Generated shard of the encoded products of {@link Parity}",
+                " */",
+                "final class ParityShard" + shard + " {",
+                "    static final String[] CHUNKS = {",
+                ""
+        );
+        String footer = String.join(separator, "    };", "}", "");
+
+        //noinspection ResultOfMethodCallIgnored
+        SHARD_SOURCES.mkdirs();
+        File file = new File(SHARD_SOURCES, "ParityShard" + shard + ".java");
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(header.getBytes(StandardCharsets.ISO_8859_1));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            encoder.write(channel, from, to);
+            buffer = ByteBuffer.wrap(footer.getBytes(StandardCharsets.ISO_8859_1));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Writes a shard class file holding a range of the literals of a product, without compiling its source
+     *
+     * @param shard   shard index
+     * @param encoder encoder of the product
+     * @param from    inclusive start literal
+     * @param to      exclusive end literal
+     * @throws IOException if the shard cannot be written
+     */
+    private static void writeShardClass(int shard, ProductEncoder encoder, int from, int to) throws IOException {
+        String name = "ParityShard" + shard;
+        //noinspection ResultOfMethodCallIgnored
+        PRODUCT_RESOURCE.getParentFile().mkdirs();
+        File file = new File(PRODUCT_RESOURCE.getParentFile(), name + ".class");
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ShardClassWriter.write(channel, LcmParitySourceGenerator.class.getPackage().getName() + "." + name, encoder, from, to);
+        }
+    }
+
+    /**
+     * Parses the tier limits
+     *
+     * @param tiers comma-separated tier limits
+     * @return distinct tier limits below the {@link #LIMIT} in ascending order, followed by the LIMIT
+     */
+    private static int[] tiers(String tiers) {
+        IntStream limits = Arrays.stream(tiers.split(","))
+                .map(String::trim)
+                .filter(tier -> !tier.isEmpty())
+                .mapToInt(Integer::parseInt)
+                .filter(limit -> limit < LIMIT);
+        return IntStream.concat(limits, IntStream.of(LIMIT)).distinct().sorted().toArray();
+    }
+
+    /**
+     * Parses a size in bytes
+     *
+     * @param size number of bytes, with an optional "k", "m", or "g" suffix
+     * @return number of bytes
+     */
+    private static long bytes(String size) {
+        String digits = size.trim().toLowerCase();
+        int shift = 0;
+        switch (digits.isEmpty() ? ' ' : digits.charAt(digits.length() - 1)) {
+            case 'g':
+                shift += 10;
+            case 'm':
+                shift += 10;
+            case 'k':
+                shift += 10;
+                digits = digits.substring(0, digits.length() - 1);
+        }
+        try {
+            return Long.parseLong(digits) << shift;
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("invalid size: " + size, exception);
+        }
+    }
+
+    /**
+     * Computes a fingerprint of products, which identifies the shared product file of Parity's mapped storage
+     *
+     * @param products {@link BigInteger#toByteArray()} bytes of the products; their positions are not modified
+     * @return total byte length and CRC-32 of the products, in hexadecimal
+     */
+    private static String fingerprint(ByteBuffer[] products) {
+        CRC32 crc = new CRC32();
+        long bytes = 0;
+        for (ByteBuffer product : products) {
+            crc.update(product.duplicate());
+            bytes += product.remaining();
+        }
+        return String.format("%x-%08x", bytes, crc.getValue());
+    }
+
+    /**
+     * Writes products to the {@link #PRODUCT_RESOURCE} as consecutive big-endian limbs. Each product is zero-padded at
+     * the front to whole limbs, such that Parity can copy the resource into its magnitudes without repacking bytes.
+     *
+     * @param products {@link BigInteger#toByteArray()} bytes of the products to write; released once written
+     * @throws IOException if the resource cannot be written
+     */
+    private static void writeResource(ByteBuffer[] products) throws IOException {
+        // gathered buffers; each product is preceded by its padding
+        ByteBuffer[] buffers = new ByteBuffer[2 * products.length];
+        long remaining = 0;
+        for (int p = 0; p < products.length; p++) {
+            ByteBuffer product = products[p].duplicate();
+            buffers[2 * p] = ByteBuffer.allocate(-product.remaining() & 3);
+            buffers[2 * p + 1] = product;
+            remaining += buffers[2 * p].remaining() + product.remaining();
+            // release product to be garbage collected once written
+            products[p] = null;
+        }
+
+        //noinspection ResultOfMethodCallIgnored
+        PRODUCT_RESOURCE.getParentFile().mkdirs();
+        try (FileChannel channel = FileChannel.open(PRODUCT_RESOURCE.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (0 < remaining) {
+                remaining -= channel.write(buffers);
+            }
+        }
     }
 }
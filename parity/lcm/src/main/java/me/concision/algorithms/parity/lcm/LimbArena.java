@@ -0,0 +1,84 @@
+package me.concision.algorithms.parity.lcm;
+
+import java.util.ArrayDeque;
+
+/**
+ * A per-thread pool of limb buffers used by {@link Natural}. Buffers are pooled in power-of-two size classes, such that
+ * buffers released by one product tree multiplication can be reused by the next one. Buffers may be released on a
+ * different thread than the one they were allocated on; they are then simply pooled by the releasing thread.
+ *
+ * @author Concision
+ */
+final class LimbArena {
+    /**
+     * Maximum number of bytes retained by each thread's arena
+     */
+    private static final long RETAINED_BYTES = Long.getLong("parity.arena.retain", 64L * 1024 * 1024 /* 64MB */);
+
+    /**
+     * Smallest buffer size class; all buffers have a capacity of at least this many limbs
+     */
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * Per-thread arenas
+     */
+    private static final ThreadLocal<LimbArena> ARENAS = ThreadLocal.withInitial(LimbArena::new);
+
+    /**
+     * Free buffers of each size class, indexed by log2 of the capacity
+     */
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<int[]>[] free = new ArrayDeque[Integer.SIZE];
+
+    /**
+     * Number of bytes retained in the free lists
+     */
+    private long retained;
+
+    private LimbArena() {
+        for (int i = 0; i < this.free.length; i++) {
+            this.free[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Obtains a buffer with at least the specified capacity from the current thread's arena. Buffer contents are
+     * undefined.
+     *
+     * @param limbs minimum capacity in limbs
+     * @return limb buffer
+     */
+    static int[] allocate(int limbs) {
+        // buffers larger than what could be retained are allocated exactly, as rounding would waste memory
+        if (RETAINED_BYTES < (long) limbs * Integer.BYTES) {
+            return new int[limbs];
+        }
+
+        int capacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(limbs - 1) << 1);
+        int[] buffer = ARENAS.get().free[Integer.numberOfTrailingZeros(capacity)].pollFirst();
+        if (buffer == null) {
+            return new int[capacity];
+        }
+        ARENAS.get().retained -= (long) capacity * Integer.BYTES;
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the current thread's arena for reuse. Buffers that do not belong to a size class, or that
+     * would exceed the retention limit, are left to be garbage collected.
+     *
+     * @param buffer limb buffer
+     */
+    static void release(int[] buffer) {
+        int capacity = buffer.length;
+        if (capacity < MIN_CAPACITY || Integer.bitCount(capacity) != 1) return;
+
+        LimbArena arena = ARENAS.get();
+        long bytes = (long) capacity * Integer.BYTES;
+        if (RETAINED_BYTES < arena.retained + bytes) return;
+
+        arena.free[Integer.numberOfTrailingZeros(capacity)].addFirst(buffer);
+        arena.retained += bytes;
+    }
+}
@@ -0,0 +1,85 @@
+package me.concision.algorithms.parity.lcm;
+
+import lombok.NonNull;
+
+import java.math.BigInteger;
+
+/**
+ * Big integer multiplication backend used by the {@link ProductTree}. Implementations must be thread-safe, as a single
+ * instance is shared by all product tree tasks. Custom backends may be selected by their fully qualified class name,
+ * in which case they require a public no-argument constructor.
+ * <p>
+ * The product tree multiplies {@link Natural}s; backends that only implement {@link BigInteger} multiplication are
+ * supported by converting operands and products, at the cost of the allocations that {@link Natural}s avoid.
+ *
+ * @author Concision
+ */
+public interface Multiplier {
+    /**
+     * Multiplies two big integers
+     *
+     * @param a multiplicand
+     * @param b multiplier
+     * @return product of {@param a} and {@param b}
+     */
+    BigInteger multiply(BigInteger a, BigInteger b);
+
+    /**
+     * Multiplies two naturals into a destination. The destination's buffer may be replaced, and must be distinct from
+     * both operands.
+     *
+     * @param a       multiplicand
+     * @param b       multiplier
+     * @param product destination of the product of {@param a} and {@param b}
+     */
+    default void multiply(Natural a, Natural b, Natural product) {
+        product.set(this.multiply(a.toBigInteger(), b.toBigInteger()));
+    }
+
+    /**
+     * Resolves a multiplication backend by name; either "karatsuba", "biginteger", "ntt", or a fully qualified class name of a
+     * {@link Multiplier} implementation.
+     *
+     * @param name backend name
+     * @return multiplication backend
+     */
+    static Multiplier named(@NonNull String name) {
+        switch (name) {
+            case "karatsuba":
+                return KaratsubaMultiplier.INSTANCE;
+            case "biginteger":
+                return BigIntegerMultiplier.INSTANCE;
+            case "ntt":
+                return new NttMultiplier();
+            default:
+                try {
+                    return Class.forName(name).asSubclass(Multiplier.class).getConstructor().newInstance();
+                } catch (ReflectiveOperationException | ClassCastException exception) {
+                    throw new IllegalArgumentException("unknown multiplier backend: " + name, exception);
+                }
+        }
+    }
+
+    /**
+     * Creates a backend that delegates to {@param large} when both operands are at least {@param thresholdBits} wide,
+     * and to {@param small} otherwise.
+     *
+     * @param small         backend for small operands
+     * @param large         backend for large operands
+     * @param thresholdBits minimum operand bit length to use the {@param large} backend
+     * @return size dispatching backend
+     */
+    static Multiplier threshold(@NonNull Multiplier small, @NonNull Multiplier large, long thresholdBits) {
+        return new Multiplier() {
+            @Override
+            public BigInteger multiply(BigInteger a, BigInteger b) {
+                return (Math.min(a.bitLength(), b.bitLength()) < thresholdBits ? small : large).multiply(a, b);
+            }
+
+            @Override
+            public void multiply(Natural a, Natural b, Natural product) {
+                (Math.min(a.bitLength(), b.bitLength()) < thresholdBits ? small : large).multiply(a, b, product);
+            }
+        };
+    }
+}
@@ -0,0 +1,419 @@
+package me.concision.algorithms.parity.lcm;
+
+import lombok.NonNull;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A mutable non-negative big integer of little-endian 32-bit limbs. Unlike {@link BigInteger}, products are written
+ * into a destination of the caller's choosing, and limb buffers are obtained from and released to a per-thread
+ * {@link LimbArena}, such that the product tree reuses the buffers of consumed operands instead of allocating new ones
+ * for every multiplication.
+ * <p>
+ * Instances are not thread-safe, and must not be used after they are {@link #release() released}.
+ *
+ * @author Concision
+ */
+public final class Natural {
+    /**
+     * Mask of an unsigned limb
+     */
+    static final long LIMB_MASK = 0xFFFFFFFFL;
+
+    /**
+     * Operands with fewer limbs than this are multiplied with schoolbook multiplication instead of Karatsuba
+     */
+    private static final int KARATSUBA_THRESHOLD = 48;
+
+    /**
+     * Limb buffer; only the first {@link #length} limbs are significant
+     */
+    int[] limbs;
+
+    /**
+     * Number of significant limbs; the most significant limb is non-zero, and zero has a length of 0
+     */
+    int length;
+
+    private Natural(int[] limbs, int length) {
+        this.limbs = limbs;
+        this.length = length;
+    }
+
+    /**
+     * Allocates zero with a buffer of at least the specified capacity from the current thread's arena
+     *
+     * @param capacity minimum capacity in limbs
+     * @return zero
+     */
+    static Natural allocate(int capacity) {
+        return new Natural(LimbArena.allocate(Math.max(1, capacity)), 0);
+    }
+
+    /**
+     * Converts a non-negative big integer
+     *
+     * @param value non-negative big integer
+     * @return natural of the same value
+     */
+    public static Natural valueOf(@NonNull BigInteger value) {
+        Natural natural = allocate((value.bitLength() + Integer.SIZE - 1) / Integer.SIZE);
+        natural.set(value);
+        return natural;
+    }
+
+    /**
+     * Converts the {@link BigInteger#toByteArray()} bytes of a non-negative big integer, without converting them to a
+     * {@link BigInteger}
+     *
+     * @param bytes big-endian bytes of a non-negative big integer; its position is not modified
+     * @return natural of the same value
+     */
+    static Natural valueOf(@NonNull ByteBuffer bytes) {
+        int from = bytes.position();
+        int b = bytes.limit() - 1;
+        int length = (bytes.remaining() + Integer.BYTES - 1) / Integer.BYTES;
+        Natural natural = allocate(length);
+        for (int i = 0; i < length; i++) {
+            int limb = 0;
+            for (int shift = 0; shift < Integer.SIZE && from <= b; shift += Byte.SIZE, b--) {
+                limb |= (bytes.get(b) & 0xFF) << shift;
+            }
+            natural.limbs[i] = limb;
+        }
+        natural.length = length;
+        natural.normalize();
+        return natural;
+    }
+
+    /**
+     * Multiplies a range of unsigned 32-bit factors in-place into a single natural; intended for short runs of factors,
+     * as every factor is multiplied into the accumulated product.
+     *
+     * @param factors unsigned factors
+     * @param from    inclusive start index
+     * @param to      exclusive end index
+     * @return product of the factors
+     */
+    static Natural product(int[] factors, int from, int to) {
+        Natural product = allocate(to - from);
+        product.limbs[0] = 1;
+        product.length = 1;
+        for (int i = from; i < to; i++) {
+            product.multiply(factors[i]);
+        }
+        return product;
+    }
+
+    /**
+     * Replaces the value of this natural
+     *
+     * @param value non-negative big integer
+     */
+    public void set(@NonNull BigInteger value) {
+        if (value.signum() < 0) throw new IllegalArgumentException("value must be non-negative: " + value);
+
+        byte[] bytes = value.toByteArray(); // big-endian
+        int length = (value.bitLength() + Integer.SIZE - 1) / Integer.SIZE;
+        this.reset(length);
+        for (int i = 0, b = bytes.length - 1; i < length; i++) {
+            int limb = 0;
+            for (int shift = 0; shift < Integer.SIZE && 0 <= b; shift += Byte.SIZE, b--) {
+                limb |= (bytes[b] & 0xFF) << shift;
+            }
+            this.limbs[i] = limb;
+        }
+        this.length = length;
+    }
+
+    /**
+     * Converts this natural to a big integer
+     *
+     * @return big integer of the same value
+     */
+    public BigInteger toBigInteger() {
+        // big-endian bytes with a leading zero byte for the sign
+        byte[] bytes = new byte[this.length * Integer.BYTES + 1];
+        for (int i = 0, b = bytes.length - 1; i < this.length; i++) {
+            int limb = this.limbs[i];
+            bytes[b--] = (byte) limb;
+            bytes[b--] = (byte) (limb >>> 8);
+            bytes[b--] = (byte) (limb >>> 16);
+            bytes[b--] = (byte) (limb >>> 24);
+        }
+        return new BigInteger(bytes);
+    }
+
+    /**
+     * @return number of significant limbs
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * @return number of bits in the minimal binary representation
+     */
+    public long bitLength() {
+        if (this.length == 0) return 0;
+        return (long) this.length * Integer.SIZE - Integer.numberOfLeadingZeros(this.limbs[this.length - 1]);
+    }
+
+    /**
+     * Returns the limb buffer to the current thread's arena; this natural must not be used afterwards
+     */
+    public void release() {
+        if (this.limbs != null) {
+            LimbArena.release(this.limbs);
+            this.limbs = null;
+            this.length = 0;
+        }
+    }
+
+    /**
+     * Multiplies this natural in-place by an unsigned 32-bit factor
+     *
+     * @param factor unsigned factor
+     */
+    void multiply(int factor) {
+        long f = factor & LIMB_MASK;
+        long carry = 0;
+        for (int i = 0; i < this.length; i++) {
+            carry += (this.limbs[i] & LIMB_MASK) * f;
+            this.limbs[i] = (int) carry;
+            carry >>>= Integer.SIZE;
+        }
+        if (carry != 0) {
+            this.ensureCapacity(this.length + 1);
+            this.limbs[this.length++] = (int) carry;
+        } else if (f == 0) {
+            this.length = 0;
+        }
+    }
+
+    /**
+     * Multiplies two naturals with schoolbook or Karatsuba multiplication into a destination. Scratch space is
+     * obtained from the current thread's arena.
+     *
+     * @param a       multiplicand
+     * @param b       multiplier
+     * @param product destination; must be distinct from both operands
+     */
+    static void multiply(Natural a, Natural b, Natural product) {
+        if (product == a || product == b) throw new IllegalArgumentException("product must not alias an operand");
+
+        int length = a.length + b.length;
+        product.reset(length);
+        Arrays.fill(product.limbs, 0, length, 0);
+        karatsuba(a.limbs, 0, a.length, b.limbs, 0, b.length, product.limbs, 0);
+        product.length = length;
+        product.normalize();
+    }
+
+    /**
+     * Multiplies two big integers through a {@link Natural} multiplication backend
+     *
+     * @param multiplier backend
+     * @param a          multiplicand
+     * @param b          multiplier
+     * @return product of {@param a} and {@param b}
+     */
+    static BigInteger multiply(Multiplier multiplier, BigInteger a, BigInteger b) {
+        int signum = a.signum() * b.signum();
+        if (signum == 0) return BigInteger.ZERO;
+
+        Natural x = valueOf(a.abs());
+        Natural y = a.equals(b) ? x : valueOf(b.abs());
+        Natural z = allocate(x.length + y.length);
+        multiplier.multiply(x, y, z);
+
+        BigInteger product = z.toBigInteger();
+        z.release();
+        if (y != x) y.release();
+        x.release();
+        return signum < 0 ? product.negate() : product;
+    }
+
+    /**
+     * Ensures the buffer can hold the specified number of limbs, preserving the value
+     *
+     * @param capacity minimum capacity in limbs
+     */
+    void ensureCapacity(int capacity) {
+        if (this.limbs.length < capacity) {
+            int[] limbs = LimbArena.allocate(capacity);
+            System.arraycopy(this.limbs, 0, limbs, 0, this.length);
+            LimbArena.release(this.limbs);
+            this.limbs = limbs;
+        }
+    }
+
+    /**
+     * Ensures the buffer can hold the specified number of limbs, discarding the value
+     *
+     * @param capacity minimum capacity in limbs
+     */
+    void reset(int capacity) {
+        this.length = 0;
+        if (this.limbs.length < capacity) {
+            LimbArena.release(this.limbs);
+            this.limbs = LimbArena.allocate(capacity);
+        }
+    }
+
+    /**
+     * Strips leading zero limbs
+     */
+    void normalize() {
+        this.length = significant(this.limbs, 0, this.length);
+    }
+
+    /**
+     * Computes a * b into a zeroed destination of aLen + bLen limbs; operands are split in halves recursively until
+     * they are small enough for schoolbook multiplication, and operands of very different lengths are multiplied in
+     * slices of the shorter length.
+     */
+    private static void karatsuba(int[] a, int aOff, int aLen, int[] b, int bOff, int bLen, int[] out, int outOff) {
+        if (aLen < bLen) {
+            karatsuba(b, bOff, bLen, a, aOff, aLen, out, outOff);
+            return;
+        }
+        if (bLen < KARATSUBA_THRESHOLD) {
+            schoolbook(a, aOff, aLen, b, bOff, bLen, out, outOff);
+            return;
+        }
+
+        if (2 * bLen <= aLen) {
+            // unbalanced; accumulate products of bLen-sized slices of a
+            int[] slice = LimbArena.allocate(2 * bLen);
+            for (int offset = 0; offset < aLen; offset += bLen) {
+                int length = Math.min(bLen, aLen - offset);
+                Arrays.fill(slice, 0, length + bLen, 0);
+                karatsuba(a, aOff + offset, length, b, bOff, bLen, slice, 0);
+                addInto(out, outOff + offset, aLen + bLen - offset, slice, 0, length + bLen);
+            }
+            LimbArena.release(slice);
+            return;
+        }
+
+        // a = a1 * B^m + a0, b = b1 * B^m + b0; as aLen / 2 < bLen, both high halves are non-empty
+        int m = aLen / 2;
+        // z0 = a0 * b0 and z2 = a1 * b1 occupy disjoint ranges of the destination
+        karatsuba(a, aOff, m, b, bOff, m, out, outOff);
+        karatsuba(a, aOff + m, aLen - m, b, bOff + m, bLen - m, out, outOff + 2 * m);
+
+        // z1 = (a0 + a1) * (b0 + b1) - z0 - z2
+        int aSumLen = aLen - m + 1;
+        int bSumLen = Math.max(m, bLen - m) + 1;
+        int[] scratch = LimbArena.allocate(2 * (aSumLen + bSumLen));
+        add(a, aOff, m, a, aOff + m, aLen - m, scratch, 0);
+        add(b, bOff, m, b, bOff + m, bLen - m, scratch, aSumLen);
+        int aSum = significant(scratch, 0, aSumLen);
+        int bSum = significant(scratch, aSumLen, bSumLen);
+
+        int z1Off = aSumLen + bSumLen;
+        int z1Len = aSum + bSum;
+        Arrays.fill(scratch, z1Off, z1Off + z1Len, 0);
+        karatsuba(scratch, 0, aSum, scratch, aSumLen, bSum, scratch, z1Off);
+        subtractInto(scratch, z1Off, z1Len, out, outOff, 2 * m);
+        subtractInto(scratch, z1Off, z1Len, out, outOff + 2 * m, aLen + bLen - 2 * m);
+
+        addInto(out, outOff + m, aLen + bLen - m, scratch, z1Off, z1Len);
+        LimbArena.release(scratch);
+    }
+
+    /**
+     * Computes a * b into a zeroed destination of aLen + bLen limbs with schoolbook multiplication
+     */
+    private static void schoolbook(int[] a, int aOff, int aLen, int[] b, int bOff, int bLen, int[] out, int outOff) {
+        for (int i = 0; i < aLen; i++) {
+            long ai = a[aOff + i] & LIMB_MASK;
+            long carry = 0;
+            int o = outOff + i;
+            for (int j = 0; j < bLen; j++, o++) {
+                // (2^32 - 1)^2 + 2 * (2^32 - 1) fits into an unsigned 64-bit integer
+                long t = ai * (b[bOff + j] & LIMB_MASK) + (out[o] & LIMB_MASK) + carry;
+                out[o] = (int) t;
+                carry = t >>> Integer.SIZE;
+            }
+            out[o] = (int) carry;
+        }
+    }
+
+    /**
+     * Computes x + y into a destination of max(xLen, yLen) + 1 limbs
+     */
+    private static void add(int[] x, int xOff, int xLen, int[] y, int yOff, int yLen, int[] out, int outOff) {
+        if (xLen < yLen) {
+            add(y, yOff, yLen, x, xOff, xLen, out, outOff);
+            return;
+        }
+        long carry = 0;
+        int i = 0;
+        for (; i < yLen; i++) {
+            carry += (x[xOff + i] & LIMB_MASK) + (y[yOff + i] & LIMB_MASK);
+            out[outOff + i] = (int) carry;
+            carry >>>= Integer.SIZE;
+        }
+        for (; i < xLen; i++) {
+            carry += x[xOff + i] & LIMB_MASK;
+            out[outOff + i] = (int) carry;
+            carry >>>= Integer.SIZE;
+        }
+        out[outOff + xLen] = (int) carry;
+    }
+
+    /**
+     * Adds x into a range of limbs; the sum must fit into the range
+     */
+    private static void addInto(int[] out, int outOff, int outLen, int[] x, int xOff, int xLen) {
+        xLen = significant(x, xOff, xLen);
+        assert xLen <= outLen : "addend exceeds destination";
+
+        long carry = 0;
+        int i = 0;
+        for (; i < xLen; i++) {
+            carry += (out[outOff + i] & LIMB_MASK) + (x[xOff + i] & LIMB_MASK);
+            out[outOff + i] = (int) carry;
+            carry >>>= Integer.SIZE;
+        }
+        for (; carry != 0 && i < outLen; i++) {
+            carry += out[outOff + i] & LIMB_MASK;
+            out[outOff + i] = (int) carry;
+            carry >>>= Integer.SIZE;
+        }
+        assert carry == 0 : "sum exceeds destination";
+    }
+
+    /**
+     * Subtracts x from a range of limbs; the difference must be non-negative
+     */
+    private static void subtractInto(int[] out, int outOff, int outLen, int[] x, int xOff, int xLen) {
+        xLen = significant(x, xOff, xLen);
+        assert xLen <= outLen : "subtrahend exceeds destination";
+
+        long borrow = 0;
+        int i = 0;
+        for (; i < xLen; i++) {
+            long difference = (out[outOff + i] & LIMB_MASK) - (x[xOff + i] & LIMB_MASK) - borrow;
+            out[outOff + i] = (int) difference;
+            borrow = difference >>> 63;
+        }
+        for (; borrow != 0 && i < outLen; i++) {
+            long difference = (out[outOff + i] & LIMB_MASK) - borrow;
+            out[outOff + i] = (int) difference;
+            borrow = difference >>> 63;
+        }
+        assert borrow == 0 : "negative difference";
+    }
+
+    /**
+     * Computes the number of significant limbs of a range
+     */
+    static int significant(int[] x, int off, int len) {
+        while (0 < len && x[off + len - 1] == 0) len--;
+        return len;
+    }
+}
@@ -0,0 +1,421 @@
+package me.concision.algorithms.parity.lcm;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Multi-threaded number-theoretic transform (NTT) multiplication backend. {@link Natural} operands are split into
+ * 16-bit digits and convolved modulo two NTT-friendly primes; the exact convolution coefficients are then recovered
+ * with the Chinese remainder theorem, as they never exceed the product of both primes. Transforms of both primes run
+ * concurrently, and every butterfly stage is further split across the
+ * {@link java.util.concurrent.ForkJoinPool#commonPool()}. Transform buffers are obtained from the {@link LimbArena}.
+ * <p>
+ * Forward transforms are decimation-in-frequency and inverse transforms are decimation-in-time, such that no bit
+ * reversal permutation is necessary. Products that are too large for the maximum transform length are computed by
+ * splitting the larger operand in halves.
+ *
+ * @author Concision
+ */
+public final class NttMultiplier implements Multiplier {
+    /**
+     * Convolution primes; 2^26 divides p - 1 for each prime
+     */
+    private static final int[] PRIMES = {2013265921 /* 15 * 2^27 + 1 */, 1811939329 /* 27 * 2^26 + 1 */};
+
+    /**
+     * Primitive roots of each convolution prime
+     */
+    private static final int[] GENERATORS = {31, 13};
+
+    /**
+     * Maximum supported transform length; the largest power of two that divides p - 1 of every prime
+     */
+    public static final int MAX_LENGTH = 1 << 26;
+
+    /**
+     * Number of bits per digit; the largest convolution coefficient is bounded by (MAX_LENGTH / 2) * (2^16 - 1)^2,
+     * which is smaller than the product of both primes
+     */
+    private static final int DIGIT_BITS = 16;
+
+    /**
+     * Minimum number of butterflies per parallel task
+     */
+    private static final int PARALLEL_BUTTERFLIES = 1 << 15;
+
+    /**
+     * Inverse of the first prime modulo the second prime, used for recovering coefficients
+     */
+    private static final long FIRST_PRIME_INVERSE = pow(PRIMES[0] % PRIMES[1], PRIMES[1] - 2, PRIMES[1]);
+
+    /**
+     * Maximum transform length used by this instance
+     */
+    private final int maxLength;
+
+    /**
+     * Constructs a backend that supports the maximum transform length, {@link #MAX_LENGTH}
+     */
+    public NttMultiplier() {
+        this(MAX_LENGTH);
+    }
+
+    /**
+     * Constructs a backend with a reduced maximum transform length
+     *
+     * @param maxLength maximum transform length; a power of two no larger than {@link #MAX_LENGTH}
+     */
+    public NttMultiplier(int maxLength) {
+        if (maxLength < 2 || MAX_LENGTH < maxLength || Integer.bitCount(maxLength) != 1)
+            throw new IllegalArgumentException("maximum transform length must be a power of two in [2, " + MAX_LENGTH + "]: " + maxLength);
+        this.maxLength = maxLength;
+    }
+
+    @Override
+    public BigInteger multiply(BigInteger a, BigInteger b) {
+        return Natural.multiply(this, a, b);
+    }
+
+    @Override
+    public void multiply(Natural a, Natural b, Natural product) {
+        if (product == a || product == b) throw new IllegalArgumentException("product must not alias an operand");
+        if (a.length == 0 || b.length == 0) {
+            product.length = 0;
+            return;
+        }
+
+        // number of digits in the product
+        long length = digits(a) + (long) digits(b);
+        if (this.maxLength < length) {
+            // split the larger operand into halves that fit into a transform: (h * B^s + l) * y = (h * y) * B^s + l * y
+            Natural x = a.length < b.length ? b : a;
+            Natural y = x == a ? b : a;
+            // single limbs cannot be split further; their product is too small to be worth a transform
+            if (x.length == 1) {
+                Natural.multiply(a, b, product);
+                return;
+            }
+            int shift = x.length / 2;
+            Natural low = Natural.allocate(shift);
+            System.arraycopy(x.limbs, 0, low.limbs, 0, shift);
+            low.length = shift;
+            low.normalize();
+            Natural high = Natural.allocate(x.length - shift);
+            System.arraycopy(x.limbs, shift, high.limbs, 0, x.length - shift);
+            high.length = x.length - shift;
+
+            int total = x.length + y.length;
+            product.reset(total);
+            this.multiply(low, y, product);
+            Arrays.fill(product.limbs, product.length, total, 0);
+            Natural partial = Natural.allocate(total - shift);
+            this.multiply(high, y, partial);
+            // the low product never exceeds B^s * y, so the high product is added at the shifted offset
+            long carry = 0;
+            for (int i = 0; i < total - shift; i++) {
+                carry += (product.limbs[shift + i] & Natural.LIMB_MASK) + (i < partial.length ? partial.limbs[i] & Natural.LIMB_MASK : 0);
+                product.limbs[shift + i] = (int) carry;
+                carry >>>= Integer.SIZE;
+            }
+            assert carry == 0 : "unexpected product carry";
+            product.length = total;
+            product.normalize();
+
+            partial.release();
+            high.release();
+            low.release();
+            return;
+        }
+
+        // smallest power of two transform length that fits the product
+        int n = Math.max(2, Integer.highestOneBit((int) length - 1) << 1);
+
+        // convolve modulo each prime concurrently
+        int[][] residues = IntStream.range(0, PRIMES.length)
+                .parallel()
+                .mapToObj(p -> convolve(a, b, n, p))
+                .toArray(int[][]::new);
+
+        product.reset(a.length + b.length);
+        fromCoefficients(residues[0], residues[1], (int) length, product);
+        for (int[] residue : residues) {
+            LimbArena.release(residue);
+        }
+    }
+
+    /**
+     * Computes the number of digits of a non-zero natural
+     *
+     * @param x natural
+     * @return number of {@link #DIGIT_BITS}-bit digits
+     */
+    private static int digits(Natural x) {
+        return (int) ((x.bitLength() + DIGIT_BITS - 1) / DIGIT_BITS);
+    }
+
+    /**
+     * Splits a natural into little-endian {@link #DIGIT_BITS}-bit digits, zero-padded to the transform length
+     *
+     * @param x      natural
+     * @param digits destination of at least n digits
+     * @param n      transform length
+     */
+    private static void toDigits(Natural x, int[] digits, int n) {
+        int[] limbs = x.limbs;
+        int i = 0;
+        for (int l = 0; l < x.length; l++) {
+            digits[i++] = limbs[l] & 0xFFFF;
+            digits[i++] = limbs[l] >>> DIGIT_BITS;
+        }
+        Arrays.fill(digits, i, n, 0);
+    }
+
+    /**
+     * Recovers the exact convolution coefficients from their residues, and propagates carries into the limbs of a
+     * destination
+     *
+     * @param first   coefficients modulo the first prime
+     * @param second  coefficients modulo the second prime
+     * @param length  number of product digits
+     * @param product destination with a capacity of at least (length + 1) / 2 limbs
+     */
+    private static void fromCoefficients(int[] first, int[] second, int length, Natural product) {
+        long p = PRIMES[0];
+        long q = PRIMES[1];
+
+        int[] limbs = product.limbs;
+        long carry = 0;
+        for (int i = 0; i < length; i++) {
+            // Garner's algorithm: c = r1 + p * ((r2 - r1) * p^-1 mod q)
+            long r1 = first[i];
+            long t = (second[i] - r1 % q) % q;
+            if (t < 0) t += q;
+            long coefficient = r1 + p * (t * FIRST_PRIME_INVERSE % q);
+
+            carry += coefficient;
+            int digit = (int) carry & 0xFFFF;
+            if ((i & 1) == 0) {
+                limbs[i >>> 1] = digit;
+            } else {
+                limbs[i >>> 1] |= digit << DIGIT_BITS;
+            }
+            carry >>>= DIGIT_BITS;
+        }
+        assert carry == 0 : "unexpected product carry";
+        product.length = (length + 1) / 2;
+        product.normalize();
+    }
+
+    /**
+     * Computes the cyclic convolution of two naturals' digits modulo a prime. The result is already scaled by the
+     * inverse transform length.
+     *
+     * @param a     first natural
+     * @param b     second natural
+     * @param n     transform length
+     * @param prime prime index
+     * @return convolution coefficients modulo the prime; a buffer of the current thread's {@link LimbArena}
+     */
+    private static int[] convolve(Natural a, Natural b, int n, int prime) {
+        int p = PRIMES[prime];
+        double inverse = 1.0D / p;
+        int root = (int) pow(GENERATORS[prime], (p - 1L) / n, p);
+        int inverseRoot = (int) pow(root, p - 2L, p);
+
+        int[] fa = LimbArena.allocate(n);
+        toDigits(a, fa, n);
+        forward(fa, n, root, p, inverse);
+
+        int[] fb;
+        if (a == b) {
+            // squaring
+            fb = fa;
+        } else {
+            fb = LimbArena.allocate(n);
+            toDigits(b, fb, n);
+            forward(fb, n, root, p, inverse);
+        }
+
+        // pointwise multiplication, scaled by n^-1 for the inverse transform
+        int scale = (int) pow(n, p - 2L, p);
+        int[] product = fa;
+        int[] factor = fb;
+        parallel(n, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                product[i] = multiply(multiply(product[i], factor[i], p, inverse), scale, p, inverse);
+            }
+        });
+        if (fb != fa) {
+            LimbArena.release(fb);
+        }
+
+        inverse(product, n, inverseRoot, p, inverse);
+        return product;
+    }
+
+    /**
+     * Decimation-in-frequency forward transform; natural order input, bit-reversed order output
+     *
+     * @param a       values to transform in-place
+     * @param n       transform length
+     * @param root    primitive n-th root of unity
+     * @param p       prime
+     * @param inverse floating-point inverse of the prime
+     */
+    private static void forward(int[] a, int n, int root, int p, double inverse) {
+        for (int length = n; 2 <= length; length >>>= 1) {
+            int half = length >>> 1;
+            // primitive root of unity of the current length
+            int w = (int) pow(root, n / length, p);
+            int finalLength = length;
+            parallel(n / 2, (from, to) -> {
+                for (int k = from; k < to; ) {
+                    int block = k / half;
+                    int j = k - block * half;
+                    int end = Math.min(half, j + (to - k));
+                    int base = block * finalLength;
+
+                    int twiddle = j == 0 ? 1 : (int) pow(w, j, p);
+                    for (; j < end; j++, k++) {
+                        int u = a[base + j];
+                        int v = a[base + j + half];
+                        a[base + j] = add(u, v, p);
+                        a[base + j + half] = multiply(subtract(u, v, p), twiddle, p, inverse);
+                        twiddle = multiply(twiddle, w, p, inverse);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Decimation-in-time inverse transform (without scaling); bit-reversed order input, natural order output
+     *
+     * @param a           values to transform in-place
+     * @param n           transform length
+     * @param inverseRoot inverse of the primitive n-th root of unity
+     * @param p           prime
+     * @param inverse     floating-point inverse of the prime
+     */
+    private static void inverse(int[] a, int n, int inverseRoot, int p, double inverse) {
+        for (int length = 2; length <= n; length <<= 1) {
+            int half = length >>> 1;
+            int w = (int) pow(inverseRoot, n / length, p);
+            int finalLength = length;
+            parallel(n / 2, (from, to) -> {
+                for (int k = from; k < to; ) {
+                    int block = k / half;
+                    int j = k - block * half;
+                    int end = Math.min(half, j + (to - k));
+                    int base = block * finalLength;
+
+                    int twiddle = j == 0 ? 1 : (int) pow(w, j, p);
+                    for (; j < end; j++, k++) {
+                        int u = a[base + j];
+                        int v = multiply(a[base + j + half], twiddle, p, inverse);
+                        a[base + j] = add(u, v, p);
+                        a[base + j + half] = subtract(u, v, p);
+                        twiddle = multiply(twiddle, w, p, inverse);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Executes a range of work, splitting it across the fork-join pool if it is large enough
+     *
+     * @param count number of work items
+     * @param range work range consumer
+     */
+    private static void parallel(int count, Range range) {
+        int tasks = count / PARALLEL_BUTTERFLIES;
+        if (tasks < 2) {
+            range.run(0, count);
+        } else {
+            IntStream.range(0, tasks).parallel().forEach(t -> range.run(
+                    (int) ((long) count * t / tasks),
+                    (int) ((long) count * (t + 1) / tasks)
+            ));
+        }
+    }
+
+    /**
+     * Modular addition
+     *
+     * @param a first residue
+     * @param b second residue
+     * @param p prime
+     * @return (a + b) mod p
+     */
+    private static int add(int a, int b, int p) {
+        // intermediate overflow is harmless, as the result is within (-p, p)
+        int sum = a + b - p;
+        return sum + (sum >> 31 & p);
+    }
+
+    /**
+     * Modular subtraction
+     *
+     * @param a first residue
+     * @param b second residue
+     * @param p prime
+     * @return (a - b) mod p
+     */
+    private static int subtract(int a, int b, int p) {
+        int difference = a - b;
+        return difference + (difference >> 31 & p);
+    }
+
+    /**
+     * Modular multiplication; the quotient is estimated with a floating-point reciprocal and corrected, which avoids
+     * a 64-bit division.
+     *
+     * @param a       first residue
+     * @param b       second residue
+     * @param p       prime
+     * @param inverse floating-point reciprocal of the prime
+     * @return (a * b) mod p
+     */
+    private static int multiply(int a, int b, int p, double inverse) {
+        long product = (long) a * b;
+        // the estimated quotient is off by at most one
+        long remainder = product - (long) ((double) a * b * inverse) * p;
+        if (remainder < 0) remainder += p;
+        else if (p <= remainder) remainder -= p;
+        return (int) remainder;
+    }
+
+    /**
+     * Modular exponentiation
+     *
+     * @param base     base
+     * @param exponent non-negative exponent
+     * @param p        modulus
+     * @return base^exponent mod p
+     */
+    private static long pow(long base, long exponent, long p) {
+        long result = 1;
+        base %= p;
+        for (; exponent != 0; exponent >>>= 1) {
+            if ((exponent & 1) != 0) result = result * base % p;
+            base = base * base % p;
+        }
+        return result;
+    }
+
+    /**
+     * Range of work items
+     */
+    @FunctionalInterface
+    private interface Range {
+        /**
+         * Processes a range of work items
+         *
+         * @param from inclusive start
+         * @param to   exclusive end
+         */
+        void run(int from, int to);
+    }
+}
@@ -1,84 +1,457 @@
 package me.concision.algorithms.parity.lcm;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.math.BigInteger;
-import java.util.Arrays;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
 
 @SuppressWarnings("ALL")
 public class Parity {
-    private static final BigInteger[] PRIME_POWERS = new BigInteger[/* PRODUCTS_COUNT */ 0 /* /PRODUCTS_COUNT */];
+    /**
+     * Upper limit of the integers whose parity is computed; the parity of integers with a larger magnitude is
+     * undefined
+     */
+    public static final int LIMIT = /* LIMIT */ Integer.MAX_VALUE /* /LIMIT */;
+
+    /**
+     * Upper limit of each tier of products, in ascending order; the last tier limit is the {@link LIMIT}. Queries are
+     * only reduced by the products of the smallest tier that covers their magnitude, such that small integers do not
+     * scan the products of the full limit.
+     */
+    private static final int[] TIER_LIMITS = {/* TIER_LIMITS */ Integer.MAX_VALUE /* /TIER_LIMITS */};
+
+    /**
+     * Index of the first of the {@link PRIME_POWERS} of each tier, followed by the number of products; the products of
+     * a tier are the LCM of all odd integers up to the tier limit. Smaller tiers come first, such that they are loaded
+     * first.
+     */
+    private static final int[] TIER_PRODUCTS = {/* TIER_PRODUCTS */ 0, 0 /* /TIER_PRODUCTS */};
+
+    /**
+     * Products of the odd prime-powers as big-endian 32-bit limbs, completed as they are loaded; kept as primitive
+     * magnitudes such that sequentially reduced queries do not allocate. Limbs are either wrapped arrays or views of a
+     * read-only mapped product file, depending on the {@link STORAGE}; wrapped arrays are reduced by kernels over their
+     * arrays, and only mapped views by kernels over buffers.
+     */
+    @SuppressWarnings("unchecked")
+    private static final CompletableFuture<IntBuffer>[] PRIME_POWERS = new CompletableFuture[/* PRODUCTS_COUNT */ 0 /* /PRODUCTS_COUNT */];
+
+    /**
+     * Byte length of each product
+     */
+    private static final int[] PRODUCT_LENGTHS;
+
+    /**
+     * Indices of the {@link #shard(int) shards} holding the UTF-8 encoded chunks of each product, in order, if not read
+     * from the {@link PRODUCT_RESOURCE}. Shards are separate classes, such that each is compiled with bounded memory,
+     * and such that their constants are only loaded once a product is decoded.
+     */
+    private static final int[][] PRODUCT_SHARDS;
+
+    /**
+     * Name of the resource holding the products as consecutive big-endian limbs, relative to this class; null if the
+     * products are encoded as string constants
+     */
+    private static final String PRODUCT_RESOURCE = /* PRODUCT_RESOURCE */ null /* /PRODUCT_RESOURCE */;
+
+    /**
+     * Checksum of the products; identifies the shared product file of {@link STORAGE mapped} products
+     */
+    private static final String PRODUCT_FINGERPRINT = /* PRODUCT_FINGERPRINT */ null /* /PRODUCT_FINGERPRINT */;
+
+    /**
+     * Product storage; either "heap" to load the products into arrays of each JVM, or "mapped" to map a product file
+     * read-only, such that all JVMs of a host share a single copy of the products in the page cache. With source
+     * packaging, only a JVM that creates the shared product file loads the string constants of the shards, which then
+     * stay on its heap.
+     */
+    private static final String STORAGE = System.getProperty("parity.storage", "heap");
+
+    /**
+     * Directory of the shared product file of {@link STORAGE mapped} products, unless the {@link PRODUCT_RESOURCE} is a
+     * file of its own
+     */
+    private static final String STORAGE_DIRECTORY = System.getProperty("parity.storage.directory", System.getProperty("java.io.tmpdir"));
+
+    /**
+     * Mask of an unsigned limb
+     */
+    private static final long LIMB_MASK = 0xFFFFFFFFL;
+
+    /**
+     * Number of independent Horner chains interleaved by the remainder kernel
+     */
+    private static final int CHAINS = 4;
+
+    /**
+     * Number of divisors reduced in a single pass by the multi-divisor remainder kernel
+     */
+    private static final int LANES = 8;
+
+    /**
+     * Maximum number of chunks a single query reduces each product in concurrently; 1 disables concurrent reduction
+     */
+    private static final int PARALLELISM = Integer.getInteger("parity.query.parallelism", Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Minimum number of limbs of each concurrently reduced chunk
+     */
+    private static final int PARALLEL_LIMBS = Integer.getInteger("parity.query.chunk", 1 << 16);
+
+    /**
+     * Minimum number of undecided values of a batch query to reduce a product with a remainder tree; fewer values are
+     * reduced together in a single pass over the product
+     */
+    private static final int BATCH_TREE_VALUES = Integer.getInteger("parity.batch.tree", 1024);
 
     /**
-     * Initialize {@link PRIME_POWERS} from UTF-8 encoded string constants
+     * Number of limbs of each block of a product that a batch query reduces against all of its values while it is cached
+     */
+    private static final int BATCH_BLOCK_LIMBS = Integer.getInteger("parity.batch.block", 1 << 13);
+
+    /**
+     * Executor of concurrently reduced chunks; a dedicated pool of daemon threads is created when first needed
+     */
+    private static volatile Executor executor;
+
+    /**
+     * Completes once all products are loaded; null until loading is started
+     */
+    private static volatile CompletableFuture<Void> loading;
+
+    /**
+     * Initialize the encoded products; products are only loaded into {@link PRIME_POWERS} once loading is started, such
+     * that class initialization does not block on it
      */
     static {
         int[] lengths = {/* PRODUCT_BYTE_LENGTHS */};
-        String[][] products = {
-/* PRODUCT_BYTES */
-        };
+        int[][] shards = {/* PRODUCT_SHARDS */};
 
-        // read each product
+        PRODUCT_LENGTHS = lengths;
+        PRODUCT_SHARDS = shards;
         for (int n = 0; n < PRIME_POWERS.length; n++) {
-            // decoded product bytes to reassemble
-            int bufferPos = 0;
-            byte[] buffer = new byte[lengths[n]];
-
-            // temporarily cached unused bits while decoding the UTF-8 encoded product
-            int bits = 0;
-            // number of bits cached in the bits variable
-            int bitsCached = 0;
-
-            // encoded product
-            String[] product = products[n];
-            // read chunk by chunk
-            for (int i = 0; i < product.length; i++) {
-                String chunk = product[i];
-                // read character by character
-                for (int c = 0; c < chunk.length(); c++) {
-                    // read next 7 bits from chunk
-                    bits = (bits << 7) | chunk.charAt(c); // read char should be already be '& 0x7F'd
-                    bitsCached += 7; // note that the last character of the last chunk might not actually hold 7 bits
-
-                    // check if this is the last iteration
-                    if (8 <= bitsCached) {
-                        // take top 8 bits
-                        buffer[bufferPos] = (byte) ((bits >> (bitsCached - 8)) & 0xFF);
-                        // increment next buffer position
-                        bufferPos++;
-
-                        // remove top 8 bits; removing from 'bits' is technically unnecessary
-                        // bits &= ~(0xFF << (bitsCached - 8));
-                        bitsCached -= 8;
-                    }
+            PRIME_POWERS[n] = new CompletableFuture<>();
+        }
+    }
+
+    /**
+     * Loads all products into {@link PRIME_POWERS} one at a time, from the {@link PRODUCT_RESOURCE} or from the
+     * {@link PRODUCT_SHARDS}, or maps them; any failure fails all products that are not yet loaded
+     */
+    private static void loadProducts() {
+        try {
+            if ("mapped".equals(STORAGE)) {
+                mapProducts();
+            } else if (!"heap".equals(STORAGE)) {
+                throw new IllegalStateException("unknown product storage: " + STORAGE);
+            } else if (PRODUCT_RESOURCE != null) {
+                readProducts(PRODUCT_LENGTHS);
+            } else {
+                for (int n = 0; n < PRIME_POWERS.length; n++) {
+                    int[] limbs = new int[PRODUCT_LENGTHS[n] + 3 >> 2];
+                    ByteBuffer.wrap(decodeProduct(n)).asIntBuffer().get(limbs);
+                    PRIME_POWERS[n].complete(IntBuffer.wrap(limbs));
+                }
+            }
+        } catch (Throwable throwable) {
+            for (CompletableFuture<IntBuffer> product : PRIME_POWERS) {
+                product.completeExceptionally(throwable);
+            }
+        }
+    }
 
-                    // last iteration check
-                    if (bufferPos == buffer.length) {
-                        // assert this is the last chunk
-                        assert i + 1 == product.length : "expected end to be at last chunk (reached: " + (i + 1) + "; expected: " + product.length + ")";
-                        assert c + 1 == chunk.length() : "expected end to be at last character of last chunk (reached: " + (c + 1) + "; expected: " + chunk.length() + ")";
+    /**
+     * Decodes a product from its UTF-8 encoded string constants. Its shards are loaded concurrently. Each character
+     * holds 7 bits, such that the bit offset of every chunk is determined by the lengths of the preceding chunks; chunks
+     * are therefore decoded concurrently by up to {@link PARALLELISM} {@link Decoder}s.
+     *
+     * @param n product index
+     * @return product bytes, zero-padded at the front to whole limbs
+     */
+    private static byte[] decodeProduct(int n) {
+        int[] shards = PRODUCT_SHARDS[n];
+        int length = PRODUCT_LENGTHS[n];
 
-                        // clear bits cached counter
-                        bitsCached = 0;
+        String[][] literals = new String[shards.length][];
+        int loaders = Math.max(1, Math.min(PARALLELISM, shards.length));
+        run(loaders, t -> {
+            for (int s = t; s < shards.length; s += loaders) {
+                literals[s] = shard(shards[s]);
+            }
+        });
+        int count = 0;
+        for (String[] shard : literals) {
+            count += shard.length;
+        }
+        String[] chunks = new String[count];
+        for (int s = 0, i = 0; s < literals.length; i += literals[s].length, s++) {
+            System.arraycopy(literals[s], 0, chunks, i, literals[s].length);
+        }
+
+        // bit offset of each chunk
+        long[] offsets = new long[chunks.length];
+        long offset = 0;
+        for (int i = 0; i < chunks.length; i++) {
+            offsets[i] = offset;
+            offset += 7L * chunks[i].length();
+        }
+        // the last character holds the last 1 to 7 bits
+        if (offset < 8L * length || 8L * length + 7 <= offset) {
+            throw new IllegalStateException("unexpected encoded length of product " + n + ": " + offset + " bits");
+        }
+
+        // decoded bytes; padded at the front to whole limbs
+        byte[] buffer = new byte[4 * ((length + 3) / 4)];
+        Decoder decoder = new Decoder(chunks, offsets, buffer);
+        int tasks = Math.max(1, Math.min(PARALLELISM, chunks.length));
+        if (1 < tasks) {
+            Executor executor = executor();
+            for (int t = 1; t < tasks; t++) {
+                try {
+                    executor.execute(decoder);
+                } catch (RejectedExecutionException exception) {
+                    decoder.run();
+                }
+            }
+        }
+        decoder.run();
+        decoder.await();
+        return buffer;
+    }
+
+    /**
+     * Obtains the UTF-8 encoded chunks of a shard, loading its class if necessary
+     *
+     * @param k shard index
+     * @return encoded chunks
+     */
+    private static String[] shard(int k) {
+        switch (k) {
+/* SHARD_CASES */
+            default:
+                throw new IllegalArgumentException("unknown shard: " + k);
+        }
+    }
+
+    /**
+     * Reads {@link PRIME_POWERS} from the {@link PRODUCT_RESOURCE}, completing each product once it is read. A resource
+     * of an exploded class directory is mapped and copied into the limbs directly; otherwise it is streamed in bulk
+     * through a small buffer.
+     *
+     * @param lengths byte length of each product; each product is padded to whole limbs
+     */
+    private static void readProducts(int[] lengths) {
+        URL url = Parity.class.getResource(PRODUCT_RESOURCE);
+        if (url == null) throw new IllegalStateException("missing product resource: " + PRODUCT_RESOURCE);
+
+        try {
+            if ("file".equals(url.getProtocol())) {
+                try (FileChannel channel = FileChannel.open(Paths.get(url.toURI()), StandardOpenOption.READ)) {
+                    long offset = 0;
+                    for (int n = 0; n < lengths.length; n++) {
+                        int[] limbs = new int[(lengths[n] + 3) / 4];
+                        channel.map(FileChannel.MapMode.READ_ONLY, offset, 4L * limbs.length).asIntBuffer().get(limbs);
+                        offset += 4L * limbs.length;
+                        PRIME_POWERS[n].complete(IntBuffer.wrap(limbs));
                     }
                 }
-                // release chunk for garbage collection
-                product[i] = null;
+            } else {
+                try (InputStream stream = url.openStream()) {
+                    byte[] buffer = new byte[1 << 20];
+                    IntBuffer view = ByteBuffer.wrap(buffer).asIntBuffer();
+                    for (int n = 0; n < lengths.length; n++) {
+                        int[] limbs = new int[(lengths[n] + 3) / 4];
+                        for (int limb = 0; limb < limbs.length; ) {
+                            int count = Math.min(buffer.length / 4, limbs.length - limb);
+                            for (int read = 0; read < 4 * count; ) {
+                                int bytes = stream.read(buffer, read, 4 * count - read);
+                                if (bytes < 0) throw new IOException("unexpected end of product resource");
+                                read += bytes;
+                            }
+                            view.clear();
+                            view.get(limbs, limb, count);
+                            limb += count;
+                        }
+                        PRIME_POWERS[n].complete(IntBuffer.wrap(limbs));
+                    }
+                }
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException("failed to read product resource: " + url, exception);
+        } catch (URISyntaxException exception) {
+            throw new IllegalStateException("invalid product resource location: " + url, exception);
+        }
+    }
+
+    /**
+     * Maps {@link PRIME_POWERS} read-only from a product file, completing each product once it is mapped; limbs are
+     * only paged in as queries read them. A {@link PRODUCT_RESOURCE} of an exploded class directory is mapped directly.
+     * Otherwise, products are mapped from a shared file in the {@link STORAGE_DIRECTORY} that is named by the
+     * {@link PRODUCT_FINGERPRINT}; the first JVM to load the products creates it from the resource or the
+     * {@link PRODUCT_SHARDS}, and moves it into place once it is complete, such that JVMs never map a partial file.
+     */
+    private static void mapProducts() {
+        int[] lengths = PRODUCT_LENGTHS;
+        long size = 0;
+        for (int length : lengths) {
+            size += 4L * (length + 3 >> 2);
+        }
+
+        Path file = null;
+        try {
+            if (PRODUCT_RESOURCE != null) {
+                URL url = Parity.class.getResource(PRODUCT_RESOURCE);
+                if (url == null) throw new IllegalStateException("missing product resource: " + PRODUCT_RESOURCE);
+                if ("file".equals(url.getProtocol())) file = Paths.get(url.toURI());
+            }
+            if (file == null) {
+                file = Paths.get(STORAGE_DIRECTORY, "parity-" + PRODUCT_FINGERPRINT + ".products");
+                if (!Files.isRegularFile(file) || Files.size(file) != size) {
+                    createProductFile(file);
+                }
             }
-            // all bits should have been consumed by now
-            assert bufferPos == buffer.length : "expected buffer position to be at end";
-            assert bitsCached == 0 : "all cached bits should have been consumed";
 
-            // release chunks for garbage collection
-            products[n] = null;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (channel.size() != size) throw new IllegalStateException("unexpected product file size: " + file);
+                long offset = 0;
+                for (int n = 0; n < lengths.length; n++) {
+                    long length = 4L * (lengths[n] + 3 >> 2);
+                    // the mapping remains valid once the channel is closed
+                    PRIME_POWERS[n].complete(channel.map(FileChannel.MapMode.READ_ONLY, offset, length).asIntBuffer());
+                    offset += length;
+                }
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException("failed to map product file: " + file, exception);
+        } catch (URISyntaxException exception) {
+            throw new IllegalStateException("invalid product resource location", exception);
+        }
+    }
 
-            // initialize product as value
-            PRIME_POWERS[n] = new BigInteger(buffer);
+    /**
+     * Creates a shared product file from the {@link PRODUCT_RESOURCE} or the {@link PRODUCT_SHARDS}. The file is
+     * written to a temporary file first, which then atomically replaces any file of concurrently loading JVMs; their
+     * contents are identical.
+     *
+     * @param file shared product file
+     * @throws IOException if the file cannot be written
+     */
+    private static void createProductFile(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temporary = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            if (PRODUCT_RESOURCE != null) {
+                try (InputStream stream = Parity.class.getResourceAsStream(PRODUCT_RESOURCE)) {
+                    Files.copy(stream, temporary, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } else {
+                try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                    for (int n = 0; n < PRODUCT_LENGTHS.length; n++) {
+                        ByteBuffer product = ByteBuffer.wrap(decodeProduct(n));
+                        while (product.hasRemaining()) {
+                            channel.write(product);
+                        }
+                    }
+                    channel.force(false);
+                }
+            }
+            // temporary files are only readable by their owner
+            temporary.toFile().setReadable(true, false);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
         }
     }
 
     /**
-     * Dummy method that forcibly loads the class and executes the static initializer
+     * Loads all products, blocking until they are loaded; see {@link #loadAsync()}
+     *
+     * @throws IllegalStateException if a product fails to load
      */
     public static void load() {
+        try {
+            loadAsync().join();
+        } catch (CompletionException exception) {
+            throw new IllegalStateException("failed to load products", exception.getCause());
+        }
+    }
+
+    /**
+     * Starts loading the products in the background, unless already started. Products are loaded one at a time on a
+     * daemon thread; queries issued meanwhile are answered from the loaded products whenever these suffice, and only
+     * wait for the remaining products otherwise (see {@link #isOdd(long, boolean)}). Queries start loading themselves.
+     *
+     * @return future that completes once all products are loaded, or completes exceptionally if a product fails to
+     * load
+     */
+    public static CompletableFuture<Void> loadAsync() {
+        CompletableFuture<Void> loading = Parity.loading;
+        if (loading == null) {
+            synchronized (Parity.class) {
+                loading = Parity.loading;
+                if (loading == null) {
+                    Parity.loading = loading = CompletableFuture.allOf(PRIME_POWERS);
+                    Thread loader = new Thread(Parity::loadProducts, "parity-loader");
+                    loader.setDaemon(true);
+                    loader.start();
+                }
+            }
+        }
+        return loading;
+    }
+
+    /**
+     * Obtains the loading state of the products
+     *
+     * @return loading state
+     */
+    public static State state() {
+        CompletableFuture<Void> loading = Parity.loading;
+        if (loading == null) return State.UNLOADED;
+        if (!loading.isDone()) return State.LOADING;
+        return loading.isCompletedExceptionally() ? State.FAILED : State.LOADED;
+    }
+
+    /**
+     * Obtains the upper limits of the tiers of products, in ascending order; the last tier limit is the {@link LIMIT}.
+     * Each integer is tested against the products of the smallest tier whose limit covers its magnitude.
+     *
+     * @return tier limits
+     */
+    public static int[] tierLimits() {
+        return TIER_LIMITS.clone();
+    }
+
+    /**
+     * Replaces the executor that reduces product chunks of a single query concurrently; see
+     * {@link #remainder(int[], long)}. By default, a dedicated pool of {@code parity.query.parallelism - 1} daemon
+     * threads is used, as the querying thread reduces one of the chunks itself.
+     *
+     * @param executor chunk executor
+     */
+    public static void setExecutor(Executor executor) {
+        if (executor == null) throw new NullPointerException("executor");
+        Parity.executor = executor;
     }
 
     /**
@@ -88,18 +461,862 @@ public class Parity {
      * @return {@code true} if {@param n} is even; {@code false} otherwise
      */
     public static boolean isEven(long n) {
-        return n == 0 || Arrays.stream(PRIME_POWERS).parallel()
-                .noneMatch(lookup -> lookup.remainder(BigInteger.valueOf((int) n)).equals(BigInteger.ZERO));
+        return !isOdd(n);
     }
 
     /**
-     * Tests if a specified integer is odd.
+     * Tests if a specified integer is even without waiting for products that are not yet loaded; see
+     * {@link #isOdd(long, boolean)}.
+     *
+     * @param n        integer to test
+     * @param fallback result if the parity cannot be determined from the loaded products
+     * @return {@code true} if {@param n} is even; {@code false} if it is odd; {@param fallback} if undetermined
+     */
+    public static boolean isEven(long n, boolean fallback) {
+        return !isOdd(n, !fallback);
+    }
+
+    /**
+     * Tests if a specified integer is odd. An odd integer divides the LCM of all odd integers up to the limit, i.e. the
+     * product of all {@link PRIME_POWERS}. As the products are pairwise coprime, the integer is divided by its greatest
+     * common divisor with each product in turn, which removes every prime-power of the integer that is part of that
+     * product; the integer is odd if and only if nothing remains. This holds regardless of how prime-powers are
+     * distributed across products, and stops as soon as the integer is fully divided. Only the products of the smallest
+     * tier whose limit covers the integer's magnitude are used, as an odd integer divides the LCM of its tier.
      *
      * @param n integer to test
      * @return {@code true} if {@param n} is odd; {@code false} otherwise
      */
     public static boolean isOdd(long n) {
-        return n != 0 && Arrays.stream(PRIME_POWERS).parallel()
-                .anyMatch(lookup -> lookup.remainder(BigInteger.valueOf((int) n)).equals(BigInteger.ZERO));
+        return odd(n, true);
+    }
+
+    /**
+     * Tests if a specified integer is odd without waiting for products that are not yet loaded. While loading, an
+     * integer is known to be odd once the loaded products fully divide it; otherwise, its parity is undetermined until
+     * the remaining products are loaded. Once all products are loaded, this is equivalent to {@link #isOdd(long)}.
+     *
+     * @param n        integer to test
+     * @param fallback result if the parity cannot be determined from the loaded products
+     * @return {@code true} if {@param n} is odd; {@code false} if it is even; {@param fallback} if undetermined
+     */
+    public static boolean isOdd(long n, boolean fallback) {
+        Boolean odd = odd(n, false);
+        return odd != null ? odd : fallback;
+    }
+
+    /**
+     * Divides a residual divisor by its greatest common divisor with each product in turn, as in {@link #isOdd(long)}.
+     * Loaded products are divided by first, as they may already suffice.
+     *
+     * @param n     integer to test
+     * @param block whether to wait for products that are not yet loaded
+     * @return whether the integer is odd; null if not blocking and the loaded products do not suffice
+     */
+    private static Boolean odd(long n, boolean block) {
+        // residual divisor; only the lower 32 bits determine the parity
+        long r = Math.abs((long) (int) n);
+        if (r == 0) return false;
+        loadAsync();
+
+        // products of the smallest tier that covers the residual divisor
+        int tier = tier(r);
+        int from = TIER_PRODUCTS[tier];
+        int to = TIER_PRODUCTS[tier + 1];
+
+        // products that were not yet loaded; only allocated while loading
+        boolean[] pending = null;
+        for (int i = from; i < to && r != 1; i++) {
+            IntBuffer product = loaded(i);
+            if (product == null) {
+                if (pending == null) pending = new boolean[PRIME_POWERS.length];
+                pending[i] = true;
+            } else {
+                // gcd(r, P) = gcd(r, P mod r)
+                r /= gcd(r, remainder(product, r));
+            }
+        }
+        if (r == 1 || pending == null) return r == 1;
+        if (!block) return null;
+
+        for (int i = from; i < to && r != 1; i++) {
+            if (pending[i]) r /= gcd(r, remainder(product(i), r));
+        }
+        return r == 1;
+    }
+
+    /**
+     * Finds the smallest tier whose limit covers a residual divisor
+     *
+     * @param r residual divisor in [1, 2^31]
+     * @return tier index; the largest tier if no tier covers the residual divisor
+     */
+    private static int tier(long r) {
+        int tier = 0;
+        while (tier < TIER_LIMITS.length - 1 && TIER_LIMITS[tier] < r) {
+            tier++;
+        }
+        return tier;
+    }
+
+    /**
+     * Tests which of the specified integers are even; see {@link #isOdd(int[])}.
+     *
+     * @param values integers to test
+     * @return whether each integer is even
+     */
+    public static boolean[] isEven(int[] values) {
+        boolean[] even = isOdd(values);
+        for (int i = 0; i < even.length; i++) {
+            even[i] = !even[i];
+        }
+        return even;
+    }
+
+    /**
+     * Tests which of the specified integers are even; see {@link #isOdd(int[])}.
+     *
+     * @param values integers to test
+     * @return whether each integer is even
+     */
+    public static boolean[] isEven(long[] values) {
+        boolean[] even = isOdd(values);
+        for (int i = 0; i < even.length; i++) {
+            even[i] = !even[i];
+        }
+        return even;
+    }
+
+    /**
+     * Tests which of the specified integers are odd. Each product is scanned once per batch instead of once per
+     * integer: small batches reduce each block of the product against all undecided integers while it is cached, and
+     * large batches reduce the product modulo the product of all undecided integers and push the remainder down a
+     * product tree of the integers (a remainder tree). Integers are grouped by their tier; see {@link #isOdd(long)}.
+     *
+     * @param values integers to test
+     * @return whether each integer is odd
+     */
+    public static boolean[] isOdd(int[] values) {
+        long[] residuals = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            residuals[i] = Math.abs((long) values[i]);
+        }
+        return odd(residuals);
+    }
+
+    /**
+     * Tests which of the specified integers are odd; see {@link #isOdd(int[])}.
+     *
+     * @param values integers to test
+     * @return whether each integer is odd
+     */
+    public static boolean[] isOdd(long[] values) {
+        long[] residuals = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            // only the lower 32 bits determine the parity
+            residuals[i] = Math.abs((long) (int) values[i]);
+        }
+        return odd(residuals);
+    }
+
+    /**
+     * Divides residual divisors by their greatest common divisor with each product of their tier in turn, as in
+     * {@link #isOdd(long)}
+     *
+     * @param residuals residual divisors in [0, 2^31]; divided in-place
+     * @return whether each residual divisor was fully divided
+     */
+    private static boolean[] odd(long[] residuals) {
+        loadAsync();
+
+        // tier of each residual divisor
+        int[] tiers = new int[residuals.length];
+        for (int i = 0; i < residuals.length; i++) {
+            tiers[i] = tier(Math.max(1, residuals[i]));
+        }
+
+        int[] undecided = new int[residuals.length];
+        boolean[] pending = new boolean[PRIME_POWERS.length];
+        for (int tier = 0; tier < TIER_LIMITS.length; tier++) {
+            // indices of the residual divisors of the tier that are not yet fully divided; 0 is never divided
+            int count = 0;
+            for (int i = 0; i < residuals.length; i++) {
+                if (1 < residuals[i] && tiers[i] == tier) undecided[count++] = i;
+            }
+
+            // loaded products first, as in odd(long, boolean)
+            for (int p = TIER_PRODUCTS[tier]; p < TIER_PRODUCTS[tier + 1] && count != 0; p++) {
+                IntBuffer product = loaded(p);
+                if (product == null) {
+                    pending[p] = true;
+                } else {
+                    count = divide(product, residuals, undecided, count);
+                }
+            }
+            for (int p = TIER_PRODUCTS[tier]; p < TIER_PRODUCTS[tier + 1] && count != 0; p++) {
+                if (pending[p]) count = divide(product(p), residuals, undecided, count);
+            }
+        }
+
+        boolean[] odd = new boolean[residuals.length];
+        for (int i = 0; i < residuals.length; i++) {
+            odd[i] = residuals[i] == 1;
+        }
+        return odd;
+    }
+
+    /**
+     * Divides undecided residual divisors by their greatest common divisor with a product
+     *
+     * @param product   product limbs
+     * @param residuals residual divisors; divided in-place
+     * @param undecided indices of the residual divisors that are not yet fully divided; compacted in-place
+     * @param count     number of undecided indices
+     * @return number of undecided indices that remain
+     */
+    private static int divide(IntBuffer product, long[] residuals, int[] undecided, int count) {
+        long[] divisors = new long[count];
+        for (int u = 0; u < count; u++) {
+            divisors[u] = residuals[undecided[u]];
+        }
+        long[] remainders = count < BATCH_TREE_VALUES ? remainders(product, divisors) : remainderTree(product, divisors);
+
+        int remaining = 0;
+        for (int u = 0; u < count; u++) {
+            int i = undecided[u];
+            residuals[i] /= gcd(residuals[i], remainders[u]);
+            if (residuals[i] != 1) undecided[remaining++] = i;
+        }
+        return remaining;
+    }
+
+    /**
+     * Obtains a product if it is loaded
+     *
+     * @param i product index
+     * @return product limbs; null if not yet loaded
+     * @throws IllegalStateException if the product failed to load
+     */
+    private static IntBuffer loaded(int i) {
+        return PRIME_POWERS[i].isDone() ? product(i) : null;
+    }
+
+    /**
+     * Obtains a product, waiting until it is loaded
+     *
+     * @param i product index
+     * @return product limbs
+     * @throws IllegalStateException if the product failed to load
+     */
+    private static IntBuffer product(int i) {
+        try {
+            return PRIME_POWERS[i].join();
+        } catch (CompletionException exception) {
+            throw new IllegalStateException("failed to load product " + i, exception.getCause());
+        }
+    }
+
+    /**
+     * Computes the remainders of a magnitude divided by several divisors with a remainder tree. The divisors are
+     * multiplied in a product tree; the magnitude is reduced modulo the root once, and each node's remainder is then
+     * reduced modulo both of its children.
+     *
+     * @param magnitude big-endian limbs
+     * @param divisors  divisors in [1, 2^31]
+     * @return magnitude mod each divisor
+     */
+    private static long[] remainderTree(IntBuffer magnitude, long[] divisors) {
+        // levels of the product tree, from the leaves to the root
+        List<BigInteger[]> tree = new ArrayList<>();
+        BigInteger[] level = new BigInteger[divisors.length];
+        for (int u = 0; u < divisors.length; u++) {
+            level[u] = BigInteger.valueOf(divisors[u]);
+        }
+        tree.add(level);
+        while (1 < level.length) {
+            BigInteger[] parents = new BigInteger[(level.length + 1) / 2];
+            for (int j = 0; j < parents.length; j++) {
+                parents[j] = 2 * j + 1 < level.length ? level[2 * j].multiply(level[2 * j + 1]) : level[2 * j];
+            }
+            tree.add(parents);
+            level = parents;
+        }
+
+        // push the remainder of the root down to the leaves
+        BigInteger[] remainders = {remainder(magnitude, level[0])};
+        for (int t = tree.size() - 2; 0 <= t; t--) {
+            BigInteger[] nodes = tree.get(t);
+            BigInteger[] children = new BigInteger[nodes.length];
+            for (int j = 0; j < nodes.length; j++) {
+                children[j] = remainders[j / 2].mod(nodes[j]);
+            }
+            remainders = children;
+        }
+
+        long[] result = new long[divisors.length];
+        for (int u = 0; u < divisors.length; u++) {
+            result[u] = remainders[u].longValue();
+        }
+        return result;
+    }
+
+    /**
+     * Computes the remainder of a magnitude divided by a big divisor. The magnitude is reduced by Horner's method in
+     * chunks of up to the divisor's bit length k, such that every dividend is below 2^(2k) and can be reduced by
+     * Barrett reduction with a reciprocal that is computed once; each reduction then costs two multiplications of
+     * operands of the divisor's length, which is considerably cheaper than a division.
+     *
+     * @param magnitude big-endian limbs
+     * @param divisor   positive divisor
+     * @return magnitude mod divisor
+     */
+    private static BigInteger remainder(IntBuffer magnitude, BigInteger divisor) {
+        int k = divisor.bitLength();
+        int chunk = k / 32;
+        if (chunk == 0) return BigInteger.valueOf(remainder(magnitude, divisor.longValue()));
+
+        // floor(4^k / divisor)
+        BigInteger reciprocal = BigInteger.ONE.shiftLeft(2 * k).divide(divisor);
+        byte[] bytes = new byte[4 * chunk];
+        int[] limbs = magnitude.hasArray() ? magnitude.array() : null;
+
+        BigInteger r = BigInteger.ZERO;
+        for (int from = 0; from < magnitude.limit(); from += chunk) {
+            int to = Math.min(from + chunk, magnitude.limit());
+            if (to - from != chunk) bytes = new byte[4 * (to - from)];
+            for (int i = from, b = 0; i < to; i++) {
+                int limb = limbs != null ? limbs[i] : magnitude.get(i);
+                bytes[b++] = (byte) (limb >>> 24);
+                bytes[b++] = (byte) (limb >>> 16);
+                bytes[b++] = (byte) (limb >>> 8);
+                bytes[b++] = (byte) limb;
+            }
+            BigInteger x = r.shiftLeft(32 * (to - from)).add(new BigInteger(1, bytes));
+
+            // the estimated quotient is at most 2 less than the quotient
+            BigInteger quotient = x.shiftRight(k - 1).multiply(reciprocal).shiftRight(k + 1);
+            r = x.subtract(quotient.multiply(divisor));
+            while (r.compareTo(divisor) >= 0) {
+                r = r.subtract(divisor);
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Computes the remainder of a magnitude divided by a divisor. Large magnitudes are split into up to
+     * {@link PARALLELISM} chunks that are reduced concurrently on the {@link #executor}, which bounds the latency of a
+     * single query by the reduction of a single chunk; the chunk remainders are then combined with
+     * 2^(32 * chunk length) mod d. Smaller magnitudes are reduced on the querying thread without allocating.
+     *
+     * @param magnitude big-endian limbs
+     * @param d         divisor in [1, 2^31]
+     * @return magnitude mod d
+     */
+    private static long remainder(IntBuffer magnitude, long d) {
+        int chunks = Math.min(PARALLELISM, magnitude.limit() / PARALLEL_LIMBS);
+        int[] limbs = magnitude.hasArray() ? magnitude.array() : null;
+        if (chunks < 2) return limbs != null ? remainder(limbs, 0, magnitude.limit(), d) : remainder(magnitude, 0, magnitude.limit(), d);
+
+        long[] remainders = new long[chunks];
+        run(chunks, c -> {
+            int from = (int) ((long) magnitude.limit() * c / chunks);
+            int to = (int) ((long) magnitude.limit() * (c + 1) / chunks);
+            remainders[c] = limbs != null ? remainder(limbs, from, to, d) : remainder(magnitude, from, to, d);
+        });
+
+        // r = r * 2^(32 * chunk length) + chunk remainder, from the most significant chunk
+        long base = (1L << 32) % d;
+        long r = remainders[0];
+        for (int c = 1; c < chunks; c++) {
+            int length = (int) ((long) magnitude.limit() * (c + 1) / chunks) - (int) ((long) magnitude.limit() * c / chunks);
+            r = (r * pow(base, length, d) + remainders[c]) % d;
+        }
+        return r;
+    }
+
+    /**
+     * Computes the remainders of a magnitude divided by several divisors. The magnitude is split into blocks of
+     * {@link BATCH_BLOCK_LIMBS} limbs, and each block is reduced against all divisors while it is cached, such that the
+     * magnitude is streamed from memory once rather than once per divisor. Contiguous ranges of blocks are distributed
+     * across up to {@link PARALLELISM} concurrent tasks, which each keep a running remainder per divisor; only the range
+     * remainders are combined with 2^(32 * range length) mod d, such that memory is bounded by the number of tasks
+     * rather than the number of blocks.
+     *
+     * @param magnitude big-endian limbs
+     * @param divisors  divisors in [1, 2^31]
+     * @return magnitude mod each divisor
+     */
+    private static long[] remainders(IntBuffer magnitude, long[] divisors) {
+        int count = divisors.length;
+        int limbs = magnitude.limit();
+        int blocks = Math.max(1, (limbs + BATCH_BLOCK_LIMBS - 1) / BATCH_BLOCK_LIMBS);
+        int tasks = Math.min(PARALLELISM, limbs / PARALLEL_LIMBS);
+        int concurrency = Math.max(1, Math.min(tasks, blocks));
+
+        // first limb of each task's range of blocks, followed by the number of limbs
+        int[] bounds = new int[concurrency + 1];
+        for (int t = 0; t < concurrency; t++) {
+            bounds[t] = (int) Math.min((long) blocks * t / concurrency * BATCH_BLOCK_LIMBS, limbs);
+        }
+        bounds[concurrency] = limbs;
+
+        long[][] remainders = new long[concurrency][count];
+        run(concurrency, t -> remainders(magnitude, bounds[t], bounds[t + 1], divisors, remainders[t]));
+        if (concurrency == 1) return remainders[0];
+
+        // r = r * 2^(32 * range length) + range remainder, from the most significant range
+        long[] result = remainders[0];
+        for (int u = 0; u < count; u++) {
+            long d = divisors[u];
+            long base = (1L << 32) % d;
+            long r = result[u];
+            for (int t = 1; t < concurrency; t++) {
+                r = (r * pow(base, bounds[t + 1] - bounds[t], d) + remainders[t][u]) % d;
+            }
+            result[u] = r;
+        }
+        return result;
+    }
+
+    /**
+     * Computes the remainders of a range of a magnitude divided by several divisors, one block of
+     * {@link BATCH_BLOCK_LIMBS} limbs at a time. Divisors are reduced {@link LANES} at a time by interleaved Horner
+     * chains that continue across blocks, and any remaining divisors individually.
+     *
+     * @param magnitude  big-endian limbs
+     * @param from       inclusive start limb
+     * @param to         exclusive end limb
+     * @param divisors   divisors in [1, 2^31]
+     * @param remainders remainders of the limbs [from, to) by each divisor; initially zero
+     */
+    private static void remainders(IntBuffer magnitude, int from, int to, long[] divisors, long[] remainders) {
+        int[] limbs = magnitude.hasArray() ? magnitude.array() : null;
+        int count = divisors.length;
+        int lanes = count - count % LANES;
+        for (int block = from; block < to; block += BATCH_BLOCK_LIMBS) {
+            int end = Math.min(block + BATCH_BLOCK_LIMBS, to);
+            for (int u = 0; u < lanes; u += LANES) {
+                if (limbs != null) {
+                    remainders(limbs, block, end, divisors, u, remainders);
+                } else {
+                    remainders(magnitude, block, end, divisors, u, remainders);
+                }
+            }
+            for (int u = lanes; u < count; u++) {
+                long d = divisors[u];
+                long remainder = limbs != null ? remainder(limbs, block, end, d) : remainder(magnitude, block, end, d);
+                remainders[u] = (remainders[u] * pow((1L << 32) % d, end - block, d) + remainder) % d;
+            }
+        }
+    }
+
+    /**
+     * Runs tasks concurrently on the {@link #executor}; the first task is run on the calling thread, as are tasks the
+     * executor rejects. Interrupts are deferred until all tasks complete, as a query must be answered.
+     *
+     * @param tasks number of tasks
+     * @param task  task, accepting the task index in [0, tasks)
+     */
+    private static void run(int tasks, IntConsumer task) {
+        CountDownLatch latch = new CountDownLatch(tasks - 1);
+        Executor executor = tasks < 2 ? null : executor();
+        for (int t = 1; t < tasks; t++) {
+            int index = t;
+            Runnable runnable = () -> {
+                try {
+                    task.accept(index);
+                } finally {
+                    latch.countDown();
+                }
+            };
+            try {
+                executor.execute(runnable);
+            } catch (RejectedExecutionException exception) {
+                runnable.run();
+            }
+        }
+        task.accept(0);
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException exception) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Obtains the executor of concurrently reduced chunks, creating the dedicated pool if necessary
+     *
+     * @return chunk executor
+     */
+    private static Executor executor() {
+        Executor executor = Parity.executor;
+        if (executor == null) {
+            synchronized (Parity.class) {
+                executor = Parity.executor;
+                if (executor == null) {
+                    AtomicInteger threadIds = new AtomicInteger();
+                    Parity.executor = executor = Executors.newFixedThreadPool(Math.max(1, PARALLELISM - 1), runnable -> {
+                        Thread thread = new Thread(runnable, "parity-query-" + threadIds.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Computes the remainder of a range of a magnitude divided by a divisor without allocating. The range is split
+     * into {@link CHAINS} consecutive ranges that are reduced by interleaved Horner chains, as each chain step depends
+     * on the previous one; the chain remainders are then combined with 2^(32 * range length) mod d.
+     *
+     * @param magnitude big-endian limbs of heap storage
+     * @param from      inclusive start limb
+     * @param to        exclusive end limb
+     * @param d         divisor in [1, 2^31]
+     * @return value of the limbs [from, to) mod d
+     */
+    private static long remainder(int[] magnitude, int from, int to, long d) {
+        double inverse = 1.0D / d;
+        int range = (to - from) / CHAINS;
+
+        long r0 = 0, r1 = 0, r2 = 0, r3 = 0;
+        for (int i = from, i1 = from + range, i2 = from + 2 * range, i3 = from + 3 * range, end = from + range; i < end; i++, i1++, i2++, i3++) {
+            r0 = step(r0, magnitude[i], d, inverse);
+            r1 = step(r1, magnitude[i1], d, inverse);
+            r2 = step(r2, magnitude[i2], d, inverse);
+            r3 = step(r3, magnitude[i3], d, inverse);
+        }
+
+        // r = ((r0 * s + r1) * s + r2) * s + r3, where s = 2^(32 * range) mod d; products are below 2^62
+        long shift = pow((1L << 32) % d, range, d);
+        long r = ((r0 * shift + r1) % d * shift + r2) % d * shift + r3;
+        r %= d;
+
+        // remaining least significant limbs
+        for (int i = from + CHAINS * range; i < to; i++) {
+            r = step(r, magnitude[i], d, inverse);
+        }
+        return r;
+    }
+
+    /**
+     * Computes the remainder of a range of a mapped magnitude divided by a divisor without allocating; see
+     * {@link #remainder(int[], int, int, long)}. Only mapped products are reduced by buffer kernels, such that heap
+     * products are read from their arrays without bounds-checked calls, and such that every kernel only ever sees a
+     * single buffer type.
+     *
+     * @param magnitude big-endian limbs of mapped storage
+     * @param from      inclusive start limb
+     * @param to        exclusive end limb
+     * @param d         divisor in [1, 2^31]
+     * @return value of the limbs [from, to) mod d
+     */
+    private static long remainder(IntBuffer magnitude, int from, int to, long d) {
+        double inverse = 1.0D / d;
+        int range = (to - from) / CHAINS;
+
+        long r0 = 0, r1 = 0, r2 = 0, r3 = 0;
+        for (int i = from, i1 = from + range, i2 = from + 2 * range, i3 = from + 3 * range, end = from + range; i < end; i++, i1++, i2++, i3++) {
+            r0 = step(r0, magnitude.get(i), d, inverse);
+            r1 = step(r1, magnitude.get(i1), d, inverse);
+            r2 = step(r2, magnitude.get(i2), d, inverse);
+            r3 = step(r3, magnitude.get(i3), d, inverse);
+        }
+
+        // r = ((r0 * s + r1) * s + r2) * s + r3, where s = 2^(32 * range) mod d; products are below 2^62
+        long shift = pow((1L << 32) % d, range, d);
+        long r = ((r0 * shift + r1) % d * shift + r2) % d * shift + r3;
+        r %= d;
+
+        // remaining least significant limbs
+        for (int i = from + CHAINS * range; i < to; i++) {
+            r = step(r, magnitude.get(i), d, inverse);
+        }
+        return r;
+    }
+
+    /**
+     * Continues the remainders of a magnitude divided by {@link LANES} divisors over a range of limbs without
+     * allocating. Each divisor is reduced by its own Horner chain, and all chains step over the same limb, which is
+     * loaded once.
+     *
+     * @param magnitude  big-endian limbs of heap storage
+     * @param from       inclusive start limb
+     * @param to         exclusive end limb
+     * @param divisors   divisors in [1, 2^31]
+     * @param lane       index of the first of the divisors to reduce by
+     * @param remainders remainders of the preceding limbs by each divisor at the divisor's index; replaced by the
+     *                   remainders including the limbs [from, to)
+     */
+    private static void remainders(int[] magnitude, int from, int to, long[] divisors, int lane, long[] remainders) {
+        long d0 = divisors[lane], d1 = divisors[lane + 1], d2 = divisors[lane + 2], d3 = divisors[lane + 3];
+        long d4 = divisors[lane + 4], d5 = divisors[lane + 5], d6 = divisors[lane + 6], d7 = divisors[lane + 7];
+        double v0 = 1.0D / d0, v1 = 1.0D / d1, v2 = 1.0D / d2, v3 = 1.0D / d3;
+        double v4 = 1.0D / d4, v5 = 1.0D / d5, v6 = 1.0D / d6, v7 = 1.0D / d7;
+
+        long r0 = remainders[lane], r1 = remainders[lane + 1], r2 = remainders[lane + 2], r3 = remainders[lane + 3];
+        long r4 = remainders[lane + 4], r5 = remainders[lane + 5], r6 = remainders[lane + 6], r7 = remainders[lane + 7];
+        for (int i = from; i < to; i++) {
+            int limb = magnitude[i];
+            r0 = step(r0, limb, d0, v0);
+            r1 = step(r1, limb, d1, v1);
+            r2 = step(r2, limb, d2, v2);
+            r3 = step(r3, limb, d3, v3);
+            r4 = step(r4, limb, d4, v4);
+            r5 = step(r5, limb, d5, v5);
+            r6 = step(r6, limb, d6, v6);
+            r7 = step(r7, limb, d7, v7);
+        }
+
+        remainders[lane] = r0;
+        remainders[lane + 1] = r1;
+        remainders[lane + 2] = r2;
+        remainders[lane + 3] = r3;
+        remainders[lane + 4] = r4;
+        remainders[lane + 5] = r5;
+        remainders[lane + 6] = r6;
+        remainders[lane + 7] = r7;
+    }
+
+    /**
+     * Continues the remainders of a mapped magnitude divided by {@link LANES} divisors over a range of limbs without
+     * allocating; see {@link #remainders(int[], int, int, long[], int, long[])}.
+     *
+     * @param magnitude  big-endian limbs of mapped storage
+     * @param from       inclusive start limb
+     * @param to         exclusive end limb
+     * @param divisors   divisors in [1, 2^31]
+     * @param lane       index of the first of the divisors to reduce by
+     * @param remainders remainders of the preceding limbs by each divisor at the divisor's index; replaced by the
+     *                   remainders including the limbs [from, to)
+     */
+    private static void remainders(IntBuffer magnitude, int from, int to, long[] divisors, int lane, long[] remainders) {
+        long d0 = divisors[lane], d1 = divisors[lane + 1], d2 = divisors[lane + 2], d3 = divisors[lane + 3];
+        long d4 = divisors[lane + 4], d5 = divisors[lane + 5], d6 = divisors[lane + 6], d7 = divisors[lane + 7];
+        double v0 = 1.0D / d0, v1 = 1.0D / d1, v2 = 1.0D / d2, v3 = 1.0D / d3;
+        double v4 = 1.0D / d4, v5 = 1.0D / d5, v6 = 1.0D / d6, v7 = 1.0D / d7;
+
+        long r0 = remainders[lane], r1 = remainders[lane + 1], r2 = remainders[lane + 2], r3 = remainders[lane + 3];
+        long r4 = remainders[lane + 4], r5 = remainders[lane + 5], r6 = remainders[lane + 6], r7 = remainders[lane + 7];
+        for (int i = from; i < to; i++) {
+            int limb = magnitude.get(i);
+            r0 = step(r0, limb, d0, v0);
+            r1 = step(r1, limb, d1, v1);
+            r2 = step(r2, limb, d2, v2);
+            r3 = step(r3, limb, d3, v3);
+            r4 = step(r4, limb, d4, v4);
+            r5 = step(r5, limb, d5, v5);
+            r6 = step(r6, limb, d6, v6);
+            r7 = step(r7, limb, d7, v7);
+        }
+
+        remainders[lane] = r0;
+        remainders[lane + 1] = r1;
+        remainders[lane + 2] = r2;
+        remainders[lane + 3] = r3;
+        remainders[lane + 4] = r4;
+        remainders[lane + 5] = r5;
+        remainders[lane + 6] = r6;
+        remainders[lane + 7] = r7;
+    }
+
+    /**
+     * Horner step of a remainder computation; the quotient is estimated with a floating-point reciprocal and corrected,
+     * which avoids a 64-bit division. As the dividend is below d * 2^32, the estimate is off by at most one.
+     *
+     * @param r       remainder of the preceding limbs, in [0, d)
+     * @param limb    next limb
+     * @param d       divisor in [1, 2^31]
+     * @param inverse floating-point reciprocal of the divisor
+     * @return (r * 2^32 + limb) mod d
+     */
+    private static long step(long r, int limb, long d, double inverse) {
+        long x = r << 32 | limb & LIMB_MASK;
+        long remainder = x - (long) (x * inverse) * d;
+        if (remainder < 0) remainder += d;
+        else if (d <= remainder) remainder -= d;
+        return remainder;
+    }
+
+    /**
+     * Modular exponentiation
+     *
+     * @param base     base
+     * @param exponent non-negative exponent
+     * @param d        modulus in [1, 2^31]
+     * @return base^exponent mod d
+     */
+    private static long pow(long base, long exponent, long d) {
+        long result = 1 % d;
+        base %= d;
+        for (; exponent != 0; exponent >>>= 1) {
+            if ((exponent & 1) != 0) result = result * base % d;
+            base = base * base % d;
+        }
+        return result;
+    }
+
+    /**
+     * Computes the greatest common divisor of two non-negative integers
+     *
+     * @param a positive integer
+     * @param b non-negative integer
+     * @return gcd(a, b)
+     */
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /**
+     * Loading state of the products
+     */
+    public enum State {
+        /**
+         * Loading has not been started
+         */
+        UNLOADED,
+        /**
+         * Products are being loaded; queries are answered from the loaded products where possible
+         */
+        LOADING,
+        /**
+         * All products are loaded
+         */
+        LOADED,
+        /**
+         * A product failed to load
+         */
+        FAILED
+    }
+
+    /**
+     * Decodes the chunks of a UTF-8 encoded product concurrently; each run claims chunks until none remain. A chunk
+     * decodes every byte whose first bit lies within the chunk, reading into the following chunk if necessary, such
+     * that no byte is written by more than one chunk. Decoders do not access Parity, such that they can also run while
+     * its class is being initialized. Package-private, such that the encoding of the generator can be tested against it.
+     */
+    static final class Decoder implements Runnable {
+        /**
+         * Encoded chunks of the product
+         */
+        private final String[] chunks;
+
+        /**
+         * Bit offset of each chunk
+         */
+        private final long[] offsets;
+
+        /**
+         * Decoded bytes of the product, aligned to the end of the buffer
+         */
+        private final byte[] buffer;
+
+        /**
+         * Index of the next unclaimed chunk
+         */
+        private final AtomicInteger next = new AtomicInteger();
+
+        /**
+         * Counts down once per decoded chunk
+         */
+        private final CountDownLatch completed;
+
+        /**
+         * Failure of any chunk
+         */
+        private volatile Throwable failure;
+
+        Decoder(String[] chunks, long[] offsets, byte[] buffer) {
+            this.chunks = chunks;
+            this.offsets = offsets;
+            this.buffer = buffer;
+            this.completed = new CountDownLatch(chunks.length);
+        }
+
+        @Override
+        public void run() {
+            for (int i = this.next.getAndIncrement(); i < this.chunks.length; i = this.next.getAndIncrement()) {
+                try {
+                    this.decode(i);
+                } catch (Throwable throwable) {
+                    this.failure = throwable;
+                } finally {
+                    this.completed.countDown();
+                }
+            }
+        }
+
+        /**
+         * Decodes the bytes whose first bit lies within a chunk
+         *
+         * @param i chunk index
+         */
+        private void decode(int i) {
+            String[] chunks = this.chunks;
+            byte[] buffer = this.buffer;
+            long start = this.offsets[i];
+            long end = start + 7L * chunks[i].length();
+            // the last character holds the last bits at its top, hence the encoded bits end within the last byte
+            int bytes = (int) ((this.offsets[chunks.length - 1] + 7L * chunks[chunks.length - 1].length()) / 8);
+            int padding = buffer.length - bytes;
+
+            // first byte starting within this chunk
+            long position = (start + 7) / 8 * 8;
+            if (end <= position) return;
+            // its first character, and the number of that character's bits belonging to preceding bytes
+            int c = (int) ((position - start) / 7);
+            int skipped = (int) ((position - start) % 7);
+
+            // bits that are not yet decoded
+            long bits = chunks[i].charAt(c++) & 0x7F >>> skipped;
+            int cached = 7 - skipped;
+            for (int b = (int) (position / 8); b < bytes && 8L * b < end; b++) {
+                while (cached < 8) {
+                    // the last byte of a chunk may continue into the next chunk
+                    if (c == chunks[i].length()) {
+                        i++;
+                        c = 0;
+                    }
+                    bits = bits << 7 | chunks[i].charAt(c++);
+                    cached += 7;
+                }
+                cached -= 8;
+                buffer[padding + b] = (byte) (bits >>> cached);
+                bits &= (1L << cached) - 1;
+            }
+        }
+
+        /**
+         * Waits for all chunks to be decoded; interrupts are deferred, as products must be loaded
+         *
+         * @throws IllegalStateException if any chunk failed
+         */
+        void await() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    this.completed.await();
+                    break;
+                } catch (InterruptedException exception) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            if (this.failure != null) throw new IllegalStateException("failed to decode product", this.failure);
+        }
     }
 }
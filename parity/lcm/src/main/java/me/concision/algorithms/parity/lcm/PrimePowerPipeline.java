@@ -0,0 +1,199 @@
+package me.concision.algorithms.parity.lcm;
+
+import lombok.NonNull;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Pipelines a {@link SegmentedSieve} into multiplication workers. Sieved segments are emitted as prime-power batches
+ * into a bounded queue, and each batch is immediately multiplied into a partial product (a leaf of the product tree)
+ * by a pool of worker threads while the remaining segments are still being sieved.
+ *
+ * @author Concision
+ */
+final class PrimePowerPipeline {
+    /**
+     * End of stream marker; one is queued for each worker once all segments are sieved
+     */
+    private static final Batch END = new Batch(-1, new int[0]);
+
+    /**
+     * Number of prime-powers multiplied in-place into a natural before recursively multiplying halves
+     */
+    private static final int LEAF_RUN = 32;
+
+    /**
+     * Prime-power source
+     */
+    private final SegmentedSieve sieve;
+
+    /**
+     * Number of multiplication worker threads
+     */
+    private final int workers;
+
+    /**
+     * Maximum number of sieved batches waiting to be multiplied
+     */
+    private final int capacity;
+
+    /**
+     * Multiplication backend of the leaf products
+     */
+    private final Multiplier multiplier;
+
+    /**
+     * Constructs a new pipeline
+     *
+     * @param sieve      prime-power source
+     * @param workers    number of multiplication worker threads
+     * @param capacity   maximum number of sieved batches waiting to be multiplied
+     * @param multiplier multiplication backend of the leaf products
+     */
+    PrimePowerPipeline(@NonNull SegmentedSieve sieve, int workers, int capacity, @NonNull Multiplier multiplier) {
+        if (workers <= 0) throw new IllegalArgumentException("at least one worker is required");
+        if (capacity <= 0) throw new IllegalArgumentException("queue capacity must be positive");
+
+        this.sieve = sieve;
+        this.workers = workers;
+        this.capacity = capacity;
+        this.multiplier = multiplier;
+    }
+
+    /**
+     * Sieves every segment and multiplies each segment's prime-powers into a leaf.
+     *
+     * @return leaf products, in segment order (i.e. in ascending order of their primes)
+     * @throws InterruptedException if interrupted while waiting for the pipeline to drain
+     */
+    Natural[] leaves() throws InterruptedException {
+        Natural[] leaves = new Natural[this.sieve.segments()];
+        BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(this.capacity);
+        // set if any stage fails; prevents producers from blocking on a queue that is no longer drained
+        CompletableFuture<Void> failure = new CompletableFuture<>();
+
+        // multiply batches as soon as they are available
+        AtomicInteger threadIds = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(this.workers, runnable -> {
+            Thread thread = new Thread(runnable, "pipeline-multiplier-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Future<?>[] consumers = new Future<?>[this.workers];
+            for (int w = 0; w < consumers.length; w++) {
+                consumers[w] = executor.submit(() -> {
+                    try {
+                        for (Batch batch; (batch = queue.take()) != END; ) {
+                            leaves[batch.segment] = this.product(batch.primePowers, 0, batch.primePowers.length);
+                        }
+                    } catch (Throwable throwable) {
+                        failure.completeExceptionally(throwable);
+                    }
+                    return null;
+                });
+            }
+
+            // sieve segments in parallel on the fork-join pool
+            CompletableFuture<Void> producer = CompletableFuture.runAsync(() -> IntStream.range(0, this.sieve.segments())
+                    .parallel()
+                    .forEach(segment -> offer(queue, new Batch(segment, this.sieve.primePowers(segment)), failure))
+            );
+            try {
+                producer.join();
+            } catch (Throwable throwable) {
+                failure.completeExceptionally(throwable);
+            }
+            // signal the end of the stream to every worker
+            for (int w = 0; w < consumers.length; w++) {
+                offer(queue, END, failure);
+            }
+
+            for (Future<?> consumer : consumers) {
+                consumer.get();
+            }
+            if (failure.isCompletedExceptionally()) {
+                failure.join();
+            }
+        } catch (ExecutionException exception) {
+            throw new RuntimeException("pipeline worker failed", exception.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return leaves;
+    }
+
+    /**
+     * Offers a batch to the queue, waiting for space to become available unless the pipeline has failed
+     *
+     * @param queue   batch queue
+     * @param batch   batch to enqueue
+     * @param failure pipeline failure signal
+     */
+    private static void offer(BlockingQueue<Batch> queue, Batch batch, CompletableFuture<Void> failure) {
+        try {
+            while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                if (failure.isDone()) {
+                    failure.join();
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted while enqueuing prime-powers", exception);
+        }
+    }
+
+    /**
+     * Sequentially multiplies a range of factors by recursively halving the range, such that operands are
+     * approximately equal in size. Short runs of factors are multiplied in-place.
+     *
+     * @param factors factors to multiply
+     * @param from    inclusive start index
+     * @param to      exclusive end index
+     * @return product of the factors
+     */
+    private Natural product(int[] factors, int from, int to) {
+        if (to - from <= LEAF_RUN) {
+            return Natural.product(factors, from, to);
+        }
+
+        int middle = (from + to) >>> 1;
+        Natural left = this.product(factors, from, middle);
+        Natural right = this.product(factors, middle, to);
+        Natural product = Natural.allocate(left.length() + right.length());
+        this.multiplier.multiply(left, right, product);
+        left.release();
+        right.release();
+        return product;
+    }
+
+    /**
+     * Prime-powers sieved from a single segment
+     */
+    private static final class Batch {
+        /**
+         * Segment index
+         */
+        private final int segment;
+
+        /**
+         * Segment prime-powers
+         */
+        private final int[] primePowers;
+
+        private Batch(int segment, int[] primePowers) {
+            this.segment = segment;
+            this.primePowers = primePowers;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package me.concision.algorithms.parity.lcm;
+
+import lombok.NonNull;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk cache of computed products. Products are stored as {@link BigInteger#toByteArray()} bytes behind a
+ * checksummed header, such that truncated or otherwise corrupt files are detected rather than producing a wrong table.
+ * All values are big-endian:
+ * <pre>
+ * int  magic "LCMP"
+ * int  format version
+ * int  LIMIT
+ * int  requested number of products ({@code parity.products}; 0 if chosen automatically)
+ * int  number of products
+ * per product:
+ *   long offset of the product bytes
+ *   long length of the product bytes
+ *   int  CRC-32 of the product bytes
+ * int  CRC-32 of all preceding header bytes
+ * product bytes
+ * </pre>
+ * Products are read as buffers mapped directly from the file, and written with a single gathering write to a temporary
+ * file that is then moved into place.
+ *
+ * @author Concision
+ */
+final class ProductCache {
+    /**
+     * File magic; "LCMP" in ASCII
+     */
+    private static final int MAGIC = 0x4C434D50;
+
+    /**
+     * Current format version; files of other versions are not read
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Length of the fixed part of the header in bytes
+     */
+    private static final int FIXED_HEADER_BYTES = 5 * Integer.BYTES;
+
+    /**
+     * Length of each product entry of the header in bytes
+     */
+    private static final int ENTRY_BYTES = 2 * Long.BYTES + Integer.BYTES;
+
+    /**
+     * Reads the products of a cache file
+     *
+     * @param file              cache file
+     * @param limit             expected LIMIT
+     * @param requestedProducts expected requested number of products; 0 if chosen automatically
+     * @return read-only buffers of each product's {@link BigInteger#toByteArray()} bytes, mapped from the file; null if
+     * the file was written by a different format version or for a different requested number of products
+     * @throws IOException if the file cannot be read, or is truncated or corrupt
+     */
+    static ByteBuffer[] read(@NonNull File file, int limit, int requestedProducts) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            CRC32 crc = new CRC32();
+
+            ByteBuffer header = read(channel, 0, FIXED_HEADER_BYTES);
+            crc.update(header.array());
+            if (header.getInt() != MAGIC) throw new IOException("not a product cache file");
+            if (header.getInt() != VERSION) return null;
+            if (header.getInt() != limit) throw new IOException("product cache file of a different LIMIT");
+            if (header.getInt() != requestedProducts) return null;
+            int count = header.getInt();
+            if (count <= 0 || (size - FIXED_HEADER_BYTES - Integer.BYTES) / ENTRY_BYTES < count) {
+                throw new IOException("invalid product count: " + count);
+            }
+
+            ByteBuffer entries = read(channel, FIXED_HEADER_BYTES, count * ENTRY_BYTES + Integer.BYTES);
+            crc.update(entries.array(), 0, count * ENTRY_BYTES);
+            long[] offsets = new long[count];
+            long[] lengths = new long[count];
+            int[] checksums = new int[count];
+            for (int i = 0; i < count; i++) {
+                offsets[i] = entries.getLong();
+                lengths[i] = entries.getLong();
+                checksums[i] = entries.getInt();
+            }
+            if (entries.getInt() != (int) crc.getValue()) throw new IOException("header checksum mismatch");
+
+            ByteBuffer[] products = new ByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                if (lengths[i] <= 0 || Integer.MAX_VALUE < lengths[i] || offsets[i] < 0 || size < offsets[i] + lengths[i]) {
+                    throw new IOException("product " + i + " exceeds the file; truncated file?");
+                }
+                products[i] = channel.map(FileChannel.MapMode.READ_ONLY, offsets[i], lengths[i]);
+
+                crc.reset();
+                crc.update(products[i].duplicate());
+                if ((int) crc.getValue() != checksums[i]) throw new IOException("product " + i + " checksum mismatch");
+            }
+            return products;
+        }
+    }
+
+    /**
+     * Writes products to a cache file, replacing any existing file once all products are written
+     *
+     * @param file              cache file
+     * @param limit             LIMIT the products were computed for
+     * @param requestedProducts requested number of products; 0 if chosen automatically
+     * @param products          buffers of each product's {@link BigInteger#toByteArray()} bytes; their positions are
+     *                          not modified
+     * @throws IOException if the file cannot be written
+     */
+    static void write(@NonNull File file, int limit, int requestedProducts, @NonNull ByteBuffer[] products) throws IOException {
+        int headerBytes = FIXED_HEADER_BYTES + products.length * ENTRY_BYTES + Integer.BYTES;
+        ByteBuffer header = ByteBuffer.allocate(headerBytes);
+        header.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(limit)
+                .putInt(requestedProducts)
+                .putInt(products.length);
+
+        // gathered buffers; the header is followed by each product
+        ByteBuffer[] buffers = new ByteBuffer[1 + products.length];
+        buffers[0] = header;
+        CRC32 crc = new CRC32();
+        long offset = headerBytes;
+        for (int i = 0; i < products.length; i++) {
+            ByteBuffer product = products[i].duplicate();
+            crc.reset();
+            crc.update(product.duplicate());
+
+            header.putLong(offset)
+                    .putLong(product.remaining())
+                    .putInt((int) crc.getValue());
+            offset += product.remaining();
+            buffers[1 + i] = product;
+        }
+        crc.reset();
+        crc.update(header.array(), 0, header.position());
+        header.putInt((int) crc.getValue());
+        header.flip();
+
+        // an interrupted write never replaces a complete file
+        Path target = file.toPath();
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (long remaining = offset; 0 < remaining; ) {
+                remaining -= channel.write(buffers);
+            }
+            channel.force(false);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a range of a file fully
+     *
+     * @param channel  file channel
+     * @param position file position to read from
+     * @param length   number of bytes to read
+     * @return heap buffer of the read bytes, positioned at 0
+     * @throws IOException if the file ends before the range
+     */
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) throw new EOFException("unexpected end of file; truncated file?");
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
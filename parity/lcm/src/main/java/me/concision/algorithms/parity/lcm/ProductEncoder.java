@@ -0,0 +1,361 @@
+package me.concision.algorithms.parity.lcm;
+
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Encodes a product as Java string literals of 7-bit characters; see {@link LcmParitySourceGenerator}. Each character
+ * holds the next 7 bits of the product, and each literal holds as many characters as fit into 0xFFFE bytes of modified
+ * UTF-8 in a class file, where '\0' takes 2 bytes and every other character 1 byte.
+ * <p>
+ * As the literal boundaries only depend on the positions of '\0' characters, the encoder first locates these in
+ * parallel, then determines all boundaries in a single pass over them, and finally escapes the literals in parallel
+ * into direct buffers that are written in order with gathering writes. Literals are encoded in rounds of a bounded
+ * number of reused buffers, such that memory does not grow with the product size.
+ *
+ * @author Concision
+ */
+final class ProductEncoder {
+    /**
+     * Maximum number of modified UTF-8 bytes of a string constant of a class file, less 1 for safety
+     */
+    private static final int STRING_BYTES = 0xFFFE;
+
+    /**
+     * Number of characters scanned for '\0' characters by each parallel task
+     */
+    private static final int SCAN_CHARACTERS = 1 << 20;
+
+    /**
+     * Number of literals encoded in parallel in each round; each has its own buffer
+     */
+    private static final int ROUND_LITERALS = 8 * Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Source line start of a literal
+     */
+    private static final byte[] LITERAL_START = "                \"".getBytes(StandardCharsets.ISO_8859_1);
+
+    /**
+     * Source line end of a literal
+     */
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.ISO_8859_1);
+
+    /**
+     * Java-legal escape sequence of each 7-bit character
+     */
+    private static final byte[][] ESCAPED = new byte[128][];
+
+    static {
+        String[] lookup = IntStream.rangeClosed(0, 127).mapToObj(i -> String.valueOf((char) i)).toArray(String[]::new);
+        lookup['\0'] = "\\u0000";
+        lookup['\b'] = "\\b";
+        lookup['\n'] = "\\n";
+        lookup['\r'] = "\\r";
+        lookup['\t'] = "\\t";
+        lookup['\f'] = "\\f";
+        lookup['\"'] = "\\\"";
+        lookup['\\'] = "\\\\";
+        for (int i = 0; i < lookup.length; i++) {
+            ESCAPED[i] = lookup[i].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Product bytes; big-endian
+     */
+    private final ByteBuffer product;
+
+    /**
+     * Number of characters; the last character holds the last 1 to 7 bits at its top
+     */
+    private final int characters;
+
+    /**
+     * Start character of each literal, followed by the number of characters
+     */
+    private final int[] starts;
+
+    /**
+     * Number of '\0' characters of each literal
+     */
+    private final int[] zeros;
+
+    /**
+     * Prepares a product for encoding by determining the boundaries of its literals
+     *
+     * @param product {@link BigInteger#toByteArray()} bytes of the product; its position is not modified
+     */
+    ProductEncoder(@NonNull ByteBuffer product) {
+        this.product = product.slice();
+        this.characters = (int) ((8L * this.product.remaining() + 6) / 7);
+
+        // positions of all '\0' characters, in ascending order
+        int segments = (this.characters + SCAN_CHARACTERS - 1) / SCAN_CHARACTERS;
+        int[] zeros = IntStream.range(0, segments)
+                .parallel()
+                .mapToObj(s -> this.zeros(s * SCAN_CHARACTERS, (int) Math.min((long) (s + 1) * SCAN_CHARACTERS, this.characters)))
+                .flatMapToInt(Arrays::stream)
+                .toArray();
+
+        // greedily fill each literal; '\0' takes 2 bytes
+        int[] starts = new int[this.characters / (STRING_BYTES / 2) + 2];
+        int[] literalZeros = new int[starts.length];
+        int literals = 0;
+        int position = 0;
+        int z = 0;
+        do {
+            starts[literals] = position;
+            int bytes = 0;
+            while (position < this.characters) {
+                int next = z < zeros.length ? zeros[z] : this.characters;
+                int run = Math.min(next - position, STRING_BYTES - bytes);
+                position += run;
+                bytes += run;
+                if (position == this.characters || position != next || STRING_BYTES < bytes + 2) break;
+
+                position++;
+                bytes += 2;
+                literalZeros[literals]++;
+                z++;
+            }
+            literals++;
+        } while (position < this.characters);
+        starts[literals] = this.characters;
+
+        this.starts = Arrays.copyOf(starts, literals + 1);
+        this.zeros = Arrays.copyOf(literalZeros, literals);
+    }
+
+    /**
+     * @return number of literals
+     */
+    int literals() {
+        return this.zeros.length;
+    }
+
+    /**
+     * Writes all literals as source lines, delimited by commas
+     *
+     * @param channel channel to write to; written in order
+     * @throws IOException if the channel cannot be written
+     */
+    void write(@NonNull GatheringByteChannel channel) throws IOException {
+        this.write(channel, 0, this.literals());
+    }
+
+    /**
+     * Writes a range of literals as source lines, delimited by commas
+     *
+     * @param channel channel to write to; written in order
+     * @param from    inclusive start literal
+     * @param to      exclusive end literal
+     * @throws IOException if the channel cannot be written
+     */
+    void write(@NonNull GatheringByteChannel channel, int from, int to) throws IOException {
+        this.write(channel, from, to, (literal, buffer) -> this.encode(literal, literal + 1 == to, buffer));
+    }
+
+    /**
+     * Writes a range of literals as CONSTANT_Utf8 entries of a class file constant pool; see {@link ShardClassWriter}
+     *
+     * @param channel channel to write to; written in order
+     * @param from    inclusive start literal
+     * @param to      exclusive end literal
+     * @throws IOException if the channel cannot be written
+     */
+    void writeConstants(@NonNull GatheringByteChannel channel, int from, int to) throws IOException {
+        this.write(channel, from, to, this::constant);
+    }
+
+    /**
+     * @param literal literal index
+     * @return number of modified UTF-8 bytes of the literal
+     */
+    int utf8Length(int literal) {
+        return this.starts[literal + 1] - this.starts[literal] + this.zeros[literal];
+    }
+
+    /**
+     * Encodes a range of literals in parallel rounds and writes them in order
+     *
+     * @param channel  channel to write to
+     * @param from     inclusive start literal
+     * @param to       exclusive end literal
+     * @param encoding encodes a single literal into a reusable buffer
+     * @throws IOException if the channel cannot be written
+     */
+    private void write(GatheringByteChannel channel, int from, int to, Encoding encoding) throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[Math.max(1, Math.min(ROUND_LITERALS, to - from))];
+        for (int start = from; start < to; start += buffers.length) {
+            int count = Math.min(buffers.length, to - start);
+            int round = start;
+            IntStream.range(0, count).parallel().forEach(b -> buffers[b] = encoding.encode(round + b, buffers[b]));
+
+            long remaining = 0;
+            for (int b = 0; b < count; b++) {
+                remaining += buffers[b].remaining();
+            }
+            while (0 < remaining) {
+                remaining -= channel.write(buffers, 0, count);
+            }
+        }
+    }
+
+    /**
+     * Encodes a literal as a source line
+     *
+     * @param literal literal index
+     * @param last    whether the literal is the last of its array, and is therefore not delimited
+     * @param buffer  buffer to reuse if large enough, or null
+     * @return buffer holding the source line, flipped for reading
+     */
+    private ByteBuffer encode(int literal, boolean last, ByteBuffer buffer) {
+        int from = this.starts[literal];
+        int to = this.starts[literal + 1];
+        // every character escapes to at most 2 bytes, except '\0' to 6
+        int capacity = LITERAL_START.length + 2 * (to - from) + 4 * this.zeros[literal] + 2 + LINE_SEPARATOR.length;
+        if (buffer == null || buffer.capacity() < capacity) {
+            buffer = ByteBuffer.allocateDirect(Math.max(capacity, LITERAL_START.length + 2 * STRING_BYTES + 2 + LINE_SEPARATOR.length));
+        }
+        buffer.clear();
+
+        buffer.put(LITERAL_START);
+        Characters characters = new Characters(this.product, from);
+        for (int c = from; c < to; c++) {
+            buffer.put(ESCAPED[characters.next()]);
+        }
+        buffer.put((byte) '"');
+        if (!last) buffer.put((byte) ',');
+        buffer.put(LINE_SEPARATOR);
+
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Encodes a literal as a CONSTANT_Utf8 entry: a tag, the big-endian length, and modified UTF-8 bytes, where '\0' is
+     * encoded as 0xC0 0x80
+     *
+     * @param literal literal index
+     * @param buffer  buffer to reuse if large enough, or null
+     * @return buffer holding the entry, flipped for reading
+     */
+    private ByteBuffer constant(int literal, ByteBuffer buffer) {
+        int from = this.starts[literal];
+        int to = this.starts[literal + 1];
+        int length = this.utf8Length(literal);
+        if (buffer == null || buffer.capacity() < 3 + length) {
+            buffer = ByteBuffer.allocateDirect(3 + STRING_BYTES);
+        }
+        buffer.clear();
+
+        buffer.put((byte) 1);
+        buffer.putShort((short) length);
+        Characters characters = new Characters(this.product, from);
+        for (int c = from; c < to; c++) {
+            int character = characters.next();
+            if (character == 0) {
+                buffer.put((byte) 0xC0).put((byte) 0x80);
+            } else {
+                buffer.put((byte) character);
+            }
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Locates the '\0' characters of a range
+     *
+     * @param from inclusive start character
+     * @param to   exclusive end character
+     * @return positions of the '\0' characters, in ascending order
+     */
+    private int[] zeros(int from, int to) {
+        int[] zeros = new int[16];
+        int count = 0;
+
+        Characters characters = new Characters(this.product, from);
+        for (int c = from; c < to; c++) {
+            if (characters.next() == 0) {
+                if (count == zeros.length) zeros = Arrays.copyOf(zeros, 2 * count);
+                zeros[count++] = c;
+            }
+        }
+        return Arrays.copyOf(zeros, count);
+    }
+
+    /**
+     * Reads the consecutive 7-bit characters of a product, starting at a character index. A cursor rather than a
+     * callback, such that the read loop of each encoding stays monomorphic and is inlined.
+     */
+    private static final class Characters {
+        /**
+         * Product bytes
+         */
+        private final ByteBuffer product;
+
+        /**
+         * Index of the next byte to read
+         */
+        private int index;
+
+        /**
+         * Bits that are not yet read; bytes beyond the product are zero
+         */
+        private int bits;
+
+        /**
+         * Number of bits that are not yet read
+         */
+        private int cached;
+
+        /**
+         * @param product product bytes
+         * @param from    index of the first character to read
+         */
+        private Characters(ByteBuffer product, int from) {
+            this.product = product;
+            long position = 7L * from;
+            this.index = (int) (position >>> 3);
+            this.bits = product.get(this.index++) & (0xFF >>> (position & 7));
+            this.cached = 8 - (int) (position & 7);
+        }
+
+        /**
+         * @return next 7-bit character
+         */
+        private int next() {
+            if (this.cached < 7) {
+                this.bits = this.bits << 8 | (this.index < this.product.limit() ? this.product.get(this.index++) & 0xFF : 0);
+                this.cached += 8;
+            }
+            this.cached -= 7;
+            int character = this.bits >>> this.cached;
+            this.bits &= (1 << this.cached) - 1;
+            return character;
+        }
+    }
+
+    /**
+     * Encodes a single literal
+     */
+    @FunctionalInterface
+    private interface Encoding {
+        /**
+         * @param literal literal index
+         * @param buffer  buffer to reuse if large enough, or null
+         * @return buffer holding the encoded literal, flipped for reading
+         */
+        ByteBuffer encode(int literal, ByteBuffer buffer);
+    }
+}
@@ -0,0 +1,558 @@
+package me.concision.algorithms.parity.lcm;
+
+import lombok.NonNull;
+import lombok.Value;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A balanced product tree over a sequence of factors. Ranges of factors are recursively split at the point where both
+ * halves have approximately the same total bit length, such that operands of every multiplication are approximately
+ * equal in size. Subtrees are computed as {@link RecursiveTask}s on the {@link ForkJoinPool#commonPool()}, so idle
+ * threads steal work across levels instead of waiting for a level to complete.
+ * <p>
+ * Products are {@link Natural}s; the buffers of both operands are released to the {@link LimbArena} once they are
+ * multiplied, such that sibling subtrees reuse them instead of allocating new ones. Factors are either 32-bit integers,
+ * which are multiplied in short runs in-place into a single natural, or previously computed naturals (e.g. leaves).
+ * <p>
+ * Subtree products may be persisted to a {@link NodeStore}, such that an interrupted multiplication resumes from its
+ * largest completed subtrees. Large subtree products may also be spilled to {@link ScratchSpace} while they wait for
+ * their sibling subtree, such that the heap only holds the working set of the multiplications in progress.
+ *
+ * @author Concision
+ */
+final class ProductTree {
+    /**
+     * Maximum tracked tree depth; deeper levels are accounted for in the deepest tracked level
+     */
+    private static final int MAX_DEPTH = 64;
+
+    /**
+     * Number of integer factors multiplied in-place into each natural leaf
+     */
+    private static final int INTEGER_RUN = 32;
+
+    /**
+     * Integer factors to multiply, or null if the factors are naturals
+     */
+    private final int[] integers;
+
+    /**
+     * Natural factors to multiply, or null if the factors are integers; elements are released as they are multiplied
+     */
+    private final Natural[] naturals;
+
+    /**
+     * Cumulative bit lengths of the natural factors; cumulativeBits[i] is the total bit length of factors [0, i)
+     */
+    private final long[] cumulativeBits;
+
+    /**
+     * Subtrees with a total bit length of at most this many bits are multiplied without forking
+     */
+    private final long sequentialBits;
+
+    /**
+     * Multiplication backend
+     */
+    private final Multiplier multiplier;
+
+    /**
+     * Store of subtree products, or null if subtrees are not persisted
+     */
+    private final NodeStore store;
+
+    /**
+     * Scratch space that waiting subtree products are spilled to, or null if they stay in the heap
+     */
+    private final ScratchSpace scratch;
+
+    /**
+     * Per-depth number of multiplications
+     */
+    private final AtomicLongArray multiplications = new AtomicLongArray(MAX_DEPTH);
+
+    /**
+     * Per-depth cumulative time spent multiplying in nanoseconds, across all threads
+     */
+    private final AtomicLongArray multiplyNanos = new AtomicLongArray(MAX_DEPTH);
+
+    /**
+     * Per-depth largest product bit length
+     */
+    private final AtomicLongArray productBits = new AtomicLongArray(MAX_DEPTH);
+
+    /**
+     * Per-depth {@link System#nanoTime()} of the first multiplication start
+     */
+    private final AtomicLongArray firstStart = new AtomicLongArray(MAX_DEPTH);
+
+    /**
+     * Per-depth {@link System#nanoTime()} of the last multiplication end
+     */
+    private final AtomicLongArray lastEnd = new AtomicLongArray(MAX_DEPTH);
+
+    /**
+     * Per-depth number of garbage collections observed while multiplying forked nodes
+     */
+    private final AtomicLongArray collections = new AtomicLongArray(MAX_DEPTH);
+
+    /**
+     * Per-depth largest used heap size observed after multiplying forked nodes; -1 if no node was forked
+     */
+    private final AtomicLongArray peakHeap = new AtomicLongArray(MAX_DEPTH);
+
+    /**
+     * Per-depth garbage collection time in milliseconds observed while multiplying forked nodes
+     */
+    private final AtomicLongArray gcMillis = new AtomicLongArray(MAX_DEPTH);
+
+    /**
+     * Per-depth bytes allocated in the heap by the multiplying threads
+     */
+    private final AtomicLongArray allocatedBytes = new AtomicLongArray(MAX_DEPTH);
+
+    /**
+     * Per-depth sum of the active threads of the pool, sampled as each multiplication starts
+     */
+    private final AtomicLongArray activeThreads = new AtomicLongArray(MAX_DEPTH);
+
+    /**
+     * Constructs a product tree over integer factors
+     *
+     * @param factors        unsigned 32-bit factors to multiply; factors of similar size should be adjacent
+     * @param sequentialBits subtrees with a total bit length of at most this many bits are multiplied without forking
+     * @param multiplier     multiplication backend
+     */
+    ProductTree(@NonNull int[] factors, long sequentialBits, @NonNull Multiplier multiplier) {
+        this(factors, sequentialBits, multiplier, null, null);
+    }
+
+    /**
+     * Constructs a product tree over integer factors that persists or spills its subtree products
+     *
+     * @param factors        unsigned 32-bit factors to multiply; factors of similar size should be adjacent
+     * @param sequentialBits subtrees with a total bit length of at most this many bits are multiplied without forking
+     * @param multiplier     multiplication backend
+     * @param store          store of subtree products, or null
+     * @param scratch        scratch space that waiting subtree products are spilled to, or null
+     */
+    ProductTree(@NonNull int[] factors, long sequentialBits, @NonNull Multiplier multiplier, NodeStore store, ScratchSpace scratch) {
+        this(factors, null, null, sequentialBits, multiplier, store, scratch);
+    }
+
+    /**
+     * Constructs a product tree over natural factors
+     *
+     * @param factors        factors to multiply; elements are released as they are multiplied
+     * @param sequentialBits subtrees with a total bit length of at most this many bits are multiplied without forking
+     * @param multiplier     multiplication backend
+     */
+    ProductTree(@NonNull Natural[] factors, long sequentialBits, @NonNull Multiplier multiplier) {
+        this(factors, sequentialBits, multiplier, null, null);
+    }
+
+    /**
+     * Constructs a product tree over natural factors that persists or spills its subtree products
+     *
+     * @param factors        factors to multiply; elements are released as they are multiplied
+     * @param sequentialBits subtrees with a total bit length of at most this many bits are multiplied without forking
+     * @param multiplier     multiplication backend
+     * @param store          store of subtree products, or null
+     * @param scratch        scratch space that waiting subtree products are spilled to, or null
+     */
+    ProductTree(@NonNull Natural[] factors, long sequentialBits, @NonNull Multiplier multiplier, NodeStore store, ScratchSpace scratch) {
+        this(null, factors, new long[factors.length + 1], sequentialBits, multiplier, store, scratch);
+        for (int i = 0; i < factors.length; i++) {
+            this.cumulativeBits[i + 1] = this.cumulativeBits[i] + factors[i].bitLength();
+        }
+    }
+
+    private ProductTree(int[] integers, Natural[] naturals, long[] cumulativeBits, long sequentialBits, Multiplier multiplier, NodeStore store, ScratchSpace scratch) {
+        this.integers = integers;
+        this.naturals = naturals;
+        this.cumulativeBits = cumulativeBits;
+        this.sequentialBits = sequentialBits;
+        this.multiplier = multiplier;
+        this.store = store;
+        this.scratch = scratch;
+
+        for (int d = 0; d < MAX_DEPTH; d++) {
+            this.firstStart.set(d, Long.MAX_VALUE);
+            this.lastEnd.set(d, Long.MIN_VALUE);
+            this.peakHeap.set(d, -1);
+        }
+    }
+
+    /**
+     * Thread bean that measures the heap bytes allocated by a thread, or null if unsupported
+     */
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    /**
+     * Multiplies all factors together
+     *
+     * @return product of all factors
+     */
+    Natural product() {
+        int count = this.integers != null ? this.integers.length : this.naturals.length;
+        if (count == 0) return Natural.product(new int[0], 0, 0);
+        return ForkJoinPool.commonPool().invoke(new Node(0, count, 0));
+    }
+
+    /**
+     * Multiplication statistics of each level of the tree that has been multiplied
+     *
+     * @return level statistics, ordered from the deepest level to the root
+     */
+    List<Level> levels() {
+        List<Level> levels = new ArrayList<>();
+        for (int d = MAX_DEPTH - 1; 0 <= d; d--) {
+            long count = this.multiplications.get(d);
+            if (count != 0) {
+                levels.add(new Level(
+                        d,
+                        count,
+                        this.productBits.get(d),
+                        this.lastEnd.get(d) - this.firstStart.get(d),
+                        this.multiplyNanos.get(d),
+                        this.peakHeap.get(d) < 0 ? -1 : this.collections.get(d),
+                        this.peakHeap.get(d) < 0 ? -1 : this.gcMillis.get(d),
+                        this.peakHeap.get(d),
+                        THREADS == null ? -1 : this.allocatedBytes.get(d),
+                        (double) this.activeThreads.get(d) / count
+                ));
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * Records a completed multiplication
+     *
+     * @param depth          depth of the multiplied node
+     * @param start          multiplication start time
+     * @param end            multiplication end time
+     * @param bits           product bit length
+     * @param allocatedBytes heap bytes allocated by the multiplying thread
+     * @param activeThreads  active threads of the pool as the multiplication started
+     */
+    private void record(int depth, long start, long end, long bits, long allocatedBytes, int activeThreads) {
+        int d = Math.min(depth, MAX_DEPTH - 1);
+        this.multiplications.incrementAndGet(d);
+        this.allocatedBytes.addAndGet(d, allocatedBytes);
+        this.activeThreads.addAndGet(d, activeThreads);
+        this.multiplyNanos.addAndGet(d, end - start);
+        this.productBits.accumulateAndGet(d, bits, Math::max);
+        this.firstStart.accumulateAndGet(d, start, Math::min);
+        this.lastEnd.accumulateAndGet(d, end, Math::max);
+    }
+
+    /**
+     * Records the memory usage of a completed multiplication of a forked node
+     *
+     * @param depth       depth of the multiplied node
+     * @param collections number of garbage collections during the multiplication
+     * @param gcMillis    garbage collection time during the multiplication in milliseconds
+     */
+    private void recordMemory(int depth, long collections, long gcMillis) {
+        int d = Math.min(depth, MAX_DEPTH - 1);
+        this.collections.addAndGet(d, collections);
+        this.gcMillis.addAndGet(d, gcMillis);
+        this.peakHeap.accumulateAndGet(d, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(), Math::max);
+    }
+
+    /**
+     * @return total number of garbage collections of all collectors
+     */
+    private static long collections() {
+        long collections = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            collections += Math.max(0, collector.getCollectionCount());
+        }
+        return collections;
+    }
+
+    /**
+     * @return total garbage collection time of all collectors in milliseconds
+     */
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * @return heap bytes allocated by the current thread so far, or 0 if unsupported
+     */
+    private static long allocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * @return thread bean that measures allocated bytes, or null if unsupported or disabled
+     */
+    private static com.sun.management.ThreadMXBean threads() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+            if (allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled()) return allocations;
+        }
+        return null;
+    }
+
+    /**
+     * Product of a range of factors
+     */
+    private final class Node extends RecursiveTask<Natural> {
+        /**
+         * Inclusive start factor index
+         */
+        private final int from;
+
+        /**
+         * Exclusive end factor index
+         */
+        private final int to;
+
+        /**
+         * Depth of this node; the root has a depth of 0
+         */
+        private final int depth;
+
+        private Node(int from, int to, int depth) {
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Natural compute() {
+            ProductTree tree = ProductTree.this;
+            if (tree.integers != null && this.to - this.from <= INTEGER_RUN) {
+                return Natural.product(tree.integers, this.from, this.to);
+            }
+            if (tree.naturals != null && this.to - this.from == 1) {
+                Natural factor = tree.naturals[this.from];
+                // the factor is released once it is multiplied
+                tree.naturals[this.from] = null;
+                return factor;
+            }
+
+            // a persisted subtree replaces its factors
+            if (tree.store != null) {
+                Natural restored = tree.store.restore(this.from, this.to, this.bits());
+                if (restored != null) {
+                    this.releaseFactors();
+                    return restored;
+                }
+            }
+
+            // integer factors are approximately equal in size
+            int middle = tree.integers != null ? (this.from + this.to) >>> 1 : this.middle();
+            Node left = new Node(this.from, middle, this.depth + 1);
+            Node right = new Node(middle, this.to, this.depth + 1);
+
+            Natural leftProduct;
+            Natural rightProduct;
+            boolean sequential = this.bits() <= tree.sequentialBits;
+            if (sequential) {
+                leftProduct = left.compute();
+                rightProduct = right.compute();
+            } else {
+                left.fork();
+                rightProduct = right.compute();
+                // the right product waits for the left subtree, which is likely executed by this thread
+                ScratchSpace.Spilled spilled = null;
+                if (tree.scratch != null && tree.scratch.spills(rightProduct.bitLength())) {
+                    spilled = tree.scratch.spill(rightProduct);
+                }
+                leftProduct = left.join();
+                if (spilled != null) {
+                    rightProduct = spilled.restore();
+                }
+            }
+
+            long collections = sequential ? 0 : collections();
+            long gcMillis = sequential ? 0 : gcMillis();
+            int activeThreads = ForkJoinPool.commonPool().getActiveThreadCount();
+            long allocatedBytes = allocatedBytes();
+            long start = System.nanoTime();
+            Natural product = Natural.allocate(leftProduct.length() + rightProduct.length());
+            tree.multiplier.multiply(leftProduct, rightProduct, product);
+            // operand buffers are reused by subsequent multiplications
+            leftProduct.release();
+            rightProduct.release();
+            tree.record(this.depth, start, System.nanoTime(), product.bitLength(), allocatedBytes() - allocatedBytes, activeThreads);
+            if (!sequential) {
+                tree.recordMemory(this.depth, collections() - collections, gcMillis() - gcMillis);
+            }
+
+            if (tree.store != null) {
+                tree.store.store(this.from, this.to, this.bits(), product);
+                // children are superseded by their parent
+                left.discard();
+                right.discard();
+            }
+            return product;
+        }
+
+        /**
+         * Discards the persisted product of this subtree, if any
+         */
+        private void discard() {
+            ProductTree tree = ProductTree.this;
+            if (tree.integers != null ? INTEGER_RUN < this.to - this.from : 1 < this.to - this.from) {
+                tree.store.discard(this.from, this.to, this.bits());
+            }
+        }
+
+        /**
+         * Releases the natural factors of this subtree, e.g. once its product is restored from a store
+         */
+        private void releaseFactors() {
+            Natural[] naturals = ProductTree.this.naturals;
+            if (naturals != null) {
+                for (int i = this.from; i < this.to; i++) {
+                    if (naturals[i] != null) {
+                        naturals[i].release();
+                        naturals[i] = null;
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return total bit length of the factors of this node; an upper bound for integer factors
+         */
+        private long bits() {
+            if (ProductTree.this.integers != null) {
+                return (long) (this.to - this.from) * Integer.SIZE;
+            }
+            return ProductTree.this.cumulativeBits[this.to] - ProductTree.this.cumulativeBits[this.from];
+        }
+
+        /**
+         * Determines the split index where both halves have an approximately equal total bit length
+         *
+         * @return split index in the range [from + 1, to - 1]
+         */
+        private int middle() {
+            long[] cumulativeBits = ProductTree.this.cumulativeBits;
+            long half = (cumulativeBits[this.from] + cumulativeBits[this.to]) / 2;
+
+            int middle = Arrays.binarySearch(cumulativeBits, this.from + 1, this.to, half);
+            if (middle < 0) {
+                // insertion point; choose the closer of the surrounding boundaries
+                middle = ~middle;
+                if (half - cumulativeBits[middle - 1] < cumulativeBits[middle] - half) middle--;
+            }
+            return Math.max(this.from + 1, Math.min(middle, this.to - 1));
+        }
+    }
+
+    /**
+     * Persistent store of subtree products; implementations choose which subtrees to persist, e.g. by their size, and
+     * must be thread-safe
+     */
+    interface NodeStore {
+        /**
+         * Restores the product of a subtree
+         *
+         * @param from inclusive start factor index
+         * @param to   exclusive end factor index
+         * @param bits total bit length of the subtree's factors; an upper bound for integer factors
+         * @return product of the subtree, or null if it is not persisted
+         */
+        Natural restore(int from, int to, long bits);
+
+        /**
+         * Persists the product of a subtree
+         *
+         * @param from    inclusive start factor index
+         * @param to      exclusive end factor index
+         * @param bits    total bit length of the subtree's factors; an upper bound for integer factors
+         * @param product product of the subtree; must not be modified
+         */
+        void store(int from, int to, long bits, Natural product);
+
+        /**
+         * Discards the persisted product of a subtree, if any
+         *
+         * @param from inclusive start factor index
+         * @param to   exclusive end factor index
+         * @param bits total bit length of the subtree's factors; an upper bound for integer factors
+         */
+        void discard(int from, int to, long bits);
+    }
+
+    /**
+     * Multiplication statistics of a single tree level
+     */
+    @Value
+    static class Level {
+        /**
+         * Tree depth; the root has a depth of 0
+         */
+        int depth;
+
+        /**
+         * Number of multiplications
+         */
+        long multiplications;
+
+        /**
+         * Largest product bit length
+         */
+        long productBits;
+
+        /**
+         * Wall-clock time between the first multiplication start and the last multiplication end, in nanoseconds
+         */
+        long elapsedNanos;
+
+        /**
+         * Cumulative time spent multiplying across all threads, in nanoseconds
+         */
+        long multiplyNanos;
+
+        /**
+         * Number of garbage collections observed while multiplying forked nodes; collections during concurrent
+         * multiplications are observed by each of them. -1 if no node of this level was forked.
+         */
+        long collections;
+
+        /**
+         * Garbage collection time observed while multiplying forked nodes, in milliseconds; like {@link #collections},
+         * concurrent multiplications each observe it. -1 if no node of this level was forked.
+         */
+        long gcMillis;
+
+        /**
+         * Largest used heap size observed after multiplying forked nodes, in bytes; -1 if no node of this level was
+         * forked.
+         */
+        long peakHeapBytes;
+
+        /**
+         * Bytes allocated in the heap by the multiplying threads, including product and scratch buffers; -1 if the
+         * runtime does not measure thread allocations
+         */
+        long allocatedBytes;
+
+        /**
+         * Average number of active threads of the pool as each multiplication started
+         */
+        double busyThreads;
+    }
+}
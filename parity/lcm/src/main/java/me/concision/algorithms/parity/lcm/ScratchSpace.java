@@ -0,0 +1,184 @@
+package me.concision.algorithms.parity.lcm;
+
+import lombok.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memory-mapped scratch files that hold values outside of the heap while they are not needed, such that the product
+ * computation fits into a bounded heap. Values are written into a mapping of a new scratch file, which is deleted as
+ * soon as it is mapped; the mapping stays valid until it is garbage collected, and its pages are written back to and
+ * read from the file system by the operating system on demand.
+ *
+ * @author Concision
+ */
+final class ScratchSpace {
+    /**
+     * Scratch file directory
+     */
+    private final File directory;
+
+    /**
+     * Values of at least this many bits are spilled by {@link #spills(long)}
+     */
+    private final long minimumBits;
+
+    /**
+     * Next scratch file identifier
+     */
+    private final AtomicLong ids = new AtomicLong();
+
+    /**
+     * Total number of spilled bytes
+     */
+    private final AtomicLong spilledBytes = new AtomicLong();
+
+    /**
+     * Constructs scratch space in a directory; scratch files left behind by a previous process are deleted
+     *
+     * @param directory   scratch file directory
+     * @param minimumBits values of at least this many bits are spilled by {@link #spills(long)}
+     */
+    ScratchSpace(@NonNull File directory, long minimumBits) {
+        this.directory = directory;
+        this.minimumBits = minimumBits;
+
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".scratch"));
+        if (files != null) {
+            for (File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * @param bits bit length of a value
+     * @return whether values of the bit length should be spilled while they are not needed
+     */
+    boolean spills(long bits) {
+        return this.minimumBits <= bits;
+    }
+
+    /**
+     * @return total number of bytes spilled so far
+     */
+    long spilledBytes() {
+        return this.spilledBytes.get();
+    }
+
+    /**
+     * Deletes the scratch file directory once it is empty; mapped values remain valid
+     */
+    void delete() {
+        //noinspection ResultOfMethodCallIgnored
+        this.directory.delete();
+    }
+
+    /**
+     * Moves a natural to a scratch file and releases it
+     *
+     * @param natural natural to spill; must not be used afterwards
+     * @return spilled natural
+     */
+    Spilled spill(@NonNull Natural natural) {
+        IntBuffer limbs = this.map((long) natural.length * Integer.BYTES).asIntBuffer();
+        limbs.put(natural.limbs, 0, natural.length);
+        limbs.flip();
+        natural.release();
+        return new Spilled(limbs);
+    }
+
+    /**
+     * Writes the {@link BigInteger#toByteArray()} bytes of a natural to a scratch file, without converting it to a
+     * {@link BigInteger}
+     *
+     * @param natural natural to write
+     * @return read-only buffer of the bytes, mapped from the scratch file
+     */
+    ByteBuffer bytes(@NonNull Natural natural) {
+        // a leading zero byte for the sign; bytes above the bit length are omitted
+        int length = (int) (natural.bitLength() / Byte.SIZE + 1);
+        ByteBuffer bytes = this.map(length);
+
+        int skip = natural.length * Integer.BYTES - length;
+        if (skip < 0) {
+            bytes.put((byte) 0);
+            skip = 0;
+        }
+        if (natural.length != 0) {
+            int top = natural.limbs[natural.length - 1];
+            for (int shift = (Integer.BYTES - 1 - skip) * Byte.SIZE; 0 <= shift; shift -= Byte.SIZE) {
+                bytes.put((byte) (top >>> shift));
+            }
+            IntBuffer limbs = bytes.asIntBuffer();
+            for (int i = natural.length - 2; 0 <= i; i--) {
+                limbs.put(natural.limbs[i]);
+            }
+        }
+        bytes.clear();
+        return bytes.asReadOnlyBuffer();
+    }
+
+    /**
+     * Maps a new scratch file, and deletes it such that it is discarded once the mapping is garbage collected
+     *
+     * @param bytes size of the scratch file
+     * @return big-endian read-write mapping of the scratch file
+     */
+    private MappedByteBuffer map(long bytes) {
+        if (Integer.MAX_VALUE < bytes) throw new IllegalArgumentException("scratch files are limited to 2GB: " + bytes);
+
+        //noinspection ResultOfMethodCallIgnored
+        this.directory.mkdirs();
+        File file = new File(this.directory, this.ids.incrementAndGet() + ".scratch");
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            this.spilledBytes.addAndGet(bytes);
+            return buffer;
+        } catch (IOException exception) {
+            throw new UncheckedIOException("failed to map scratch file: " + file, exception);
+        } finally {
+            // mapped files cannot be deleted on some platforms
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * A natural held in a scratch file
+     */
+    static final class Spilled {
+        /**
+         * Significant limbs
+         */
+        private final IntBuffer limbs;
+
+        private Spilled(IntBuffer limbs) {
+            this.limbs = limbs;
+        }
+
+        /**
+         * Reads the natural back into the heap
+         *
+         * @return natural of the current thread's arena
+         */
+        Natural restore() {
+            int length = this.limbs.remaining();
+            Natural natural = Natural.allocate(length);
+            this.limbs.duplicate().get(natural.limbs, 0, length);
+            natural.length = length;
+            return natural;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package me.concision.algorithms.parity.lcm;
+
+import java.util.stream.IntStream;
+
+import static java.lang.Math.sqrt;
+
+/**
+ * A segmented sieve of Eratosthenes that computes odd prime-powers. The odd numbers of the sieved range are split into
+ * fixed-size segments (sized to fit into a core's L2 cache) that are sieved independently on the fork-join pool. Each
+ * segment is pre-sieved with a 2 * 3 * 5 * 7 wheel pattern, and the remaining primes only cross off multiples that are
+ * coprime to the wheel.
+ *
+ * @author Concision
+ */
+final class SegmentedSieve {
+    /**
+     * Wheel circumference; primes 2, 3, 5, and 7 are never explicitly sieved
+     */
+    private static final int WHEEL = 2 * 3 * 5 * 7;
+
+    /**
+     * Residues in the range [0, {@link #WHEEL}) that are coprime to {@link #WHEEL}
+     */
+    private static final int[] WHEEL_RESIDUES;
+
+    /**
+     * Distances between consecutive {@link #WHEEL_RESIDUES}; the last gap wraps around to the first residue
+     */
+    private static final int[] WHEEL_GAPS;
+
+    /**
+     * Maps any residue r in [0, {@link #WHEEL}) to the distance of the next coprime residue (r itself if coprime)
+     */
+    private static final int[] WHEEL_ADVANCE;
+
+    /**
+     * Maps a coprime residue to its index in {@link #WHEEL_RESIDUES}
+     */
+    private static final int[] WHEEL_INDEX;
+
+    /**
+     * Odd-indexed bit pattern with all odd multiples of 3, 5, and 7 marked as composite. The pattern repeats every
+     * 3 * 5 * 7 = 105 bits; 105 words are needed to have it also align to 64-bit words.
+     */
+    private static final long[] PRESIEVE_PATTERN;
+
+    static {
+        WHEEL_RESIDUES = IntStream.range(0, WHEEL).filter(r -> r % 2 != 0 && r % 3 != 0 && r % 5 != 0 && r % 7 != 0).toArray();
+
+        WHEEL_GAPS = new int[WHEEL_RESIDUES.length];
+        WHEEL_INDEX = new int[WHEEL];
+        for (int i = 0; i < WHEEL_RESIDUES.length; i++) {
+            int next = i + 1 < WHEEL_RESIDUES.length ? WHEEL_RESIDUES[i + 1] : WHEEL + WHEEL_RESIDUES[0];
+            WHEEL_GAPS[i] = next - WHEEL_RESIDUES[i];
+            WHEEL_INDEX[WHEEL_RESIDUES[i]] = i;
+        }
+
+        WHEEL_ADVANCE = new int[WHEEL];
+        for (int r = 0, i = 0; r < WHEEL; r++) {
+            // the last residue is WHEEL - 1, hence there is always a next coprime residue
+            while (WHEEL_RESIDUES[i] < r) i++;
+            WHEEL_ADVANCE[r] = WHEEL_RESIDUES[i] - r;
+        }
+
+        PRESIEVE_PATTERN = new long[3 * 5 * 7];
+        for (int i = 0; i < PRESIEVE_PATTERN.length * Long.SIZE; i++) {
+            // translate odd index to number
+            int n = 2 * i + 1;
+            if (n % 3 == 0 || n % 5 == 0 || n % 7 == 0) {
+                PRESIEVE_PATTERN[i / Long.SIZE] |= 1L << i;
+            }
+        }
+    }
+
+    /**
+     * Exclusive lower bound of the sieved range
+     */
+    private final int lower;
+
+    /**
+     * Inclusive upper bound of the sieved range; also the upper bound of any computed prime-power
+     */
+    private final int upper;
+
+    /**
+     * Number of odd numbers sieved per segment; always a multiple of 64
+     */
+    private final int segmentBits;
+
+    /**
+     * Odd-index of the first bit in the first segment; always aligned to 64 bits
+     */
+    private final long base;
+
+    /**
+     * Number of segments to sieve
+     */
+    private final int segments;
+
+    /**
+     * Sieving primes p, where 11 <= p <= sqrt(upper)
+     */
+    private final int[] sievingPrimes;
+
+    /**
+     * Reusable per-thread segment bit sets
+     */
+    private final ThreadLocal<long[]> segmentBuffers;
+
+    /**
+     * Constructs a segmented sieve for primes in the range (lower, upper].
+     *
+     * @param lower        exclusive lower bound of primes to sieve
+     * @param upper        inclusive upper bound of primes to sieve
+     * @param segmentBytes number of bytes used for each segment's bit set
+     */
+    SegmentedSieve(int lower, int upper, int segmentBytes) {
+        if (lower < 0 || upper < lower) throw new IllegalArgumentException("invalid sieve range: (" + lower + ", " + upper + "]");
+        if (segmentBytes < Long.BYTES) throw new IllegalArgumentException("segment size is too small: " + segmentBytes);
+
+        this.lower = lower;
+        this.upper = upper;
+        // round down to a whole number of 64-bit words
+        this.segmentBits = segmentBytes / Long.BYTES * Long.SIZE;
+
+        // odd-indexes are the translation f(n) = (n - 1) / 2
+        long first = (lower + 1L) / 2;
+        long last = (upper - 1L) / 2;
+        this.base = first / Long.SIZE * Long.SIZE;
+        this.segments = last < first ? 0 : (int) ((last - base) / this.segmentBits + 1);
+
+        this.sievingPrimes = sievingPrimes((int) sqrt(upper));
+        this.segmentBuffers = ThreadLocal.withInitial(() -> new long[this.segmentBits / Long.SIZE]);
+    }
+
+    /**
+     * Computes all odd primes p, where 11 <= p <= {@param limit}, with a simple (unsegmented) sieve.
+     *
+     * @param limit inclusive upper limit of primes
+     * @return sieving primes
+     */
+    private static int[] sievingPrimes(int limit) {
+        // indexed by odd numbers only; composite[f(x)] with f(x) = floor((x-1)/2)
+        boolean[] composite = new boolean[limit / 2 + 1];
+        for (int n = 3; (long) n * n <= limit; n += 2) {
+            if (!composite[n / 2]) {
+                for (int m = n * n; m <= limit; m += 2 * n) {
+                    composite[m / 2] = true;
+                }
+            }
+        }
+        return IntStream.rangeClosed(11, limit).filter(n -> n % 2 != 0 && !composite[n / 2]).toArray();
+    }
+
+    /**
+     * @return number of segments this sieve will process
+     */
+    int segments() {
+        return this.segments;
+    }
+
+    /**
+     * Sieves all segments in parallel and computes the prime-power of every odd prime in the range, in ascending order
+     * of the primes.
+     *
+     * @return odd prime-powers
+     */
+    int[] primePowers() {
+        int[][] segmentPowers = IntStream.range(0, this.segments)
+                .parallel()
+                .mapToObj(this::primePowers)
+                .toArray(int[][]::new);
+
+        // concatenate segments in order
+        int length = 0;
+        for (int[] powers : segmentPowers) {
+            length += powers.length;
+        }
+        int[] primePowers = new int[length];
+        for (int s = 0, offset = 0; s < segmentPowers.length; s++) {
+            System.arraycopy(segmentPowers[s], 0, primePowers, offset, segmentPowers[s].length);
+            offset += segmentPowers[s].length;
+            // release segment to be garbage collected
+            segmentPowers[s] = null;
+        }
+        return primePowers;
+    }
+
+    /**
+     * Sieves a single segment and computes the prime-powers of every odd prime within it
+     *
+     * @param segment segment index
+     * @return odd prime-powers of the segment, in ascending order of the primes
+     */
+    int[] primePowers(int segment) {
+        long[] bits = this.segmentBuffers.get();
+        // first odd-index of the segment
+        long start = this.base + (long) segment * this.segmentBits;
+        // smallest and largest numbers covered by the segment
+        long low = 2 * start + 1;
+        long high = 2 * (start + this.segmentBits) - 1;
+
+        // pre-sieve with the wheel; the start is aligned to words
+        {
+            int offset = (int) ((start / Long.SIZE) % PRESIEVE_PATTERN.length);
+            for (int w = 0; w < bits.length; ) {
+                int length = Math.min(PRESIEVE_PATTERN.length - offset, bits.length - w);
+                System.arraycopy(PRESIEVE_PATTERN, offset, bits, w, length);
+                w += length;
+                offset = 0;
+            }
+
+            // the pattern marks the wheel primes themselves and does not mark the unit
+            if (start == 0) {
+                bits[0] &= ~0b1110L; // 3, 5, 7 are prime
+                bits[0] |= 0b0001L; // 1 is not prime
+            }
+        }
+
+        // cross off odd multiples m*p for wheel-coprime m
+        for (int p : this.sievingPrimes) {
+            if (high < (long) p * p) break;
+
+            // smallest multiplier that yields a multiple within the segment, skipping those handled by smaller primes
+            long m = Math.max(p, (low + p - 1) / p);
+            m += WHEEL_ADVANCE[(int) (m % WHEEL)];
+            int w = WHEEL_INDEX[(int) (m % WHEEL)];
+
+            for (long multiple = m * p; multiple <= high; multiple = m * p) {
+                long index = (multiple - 1) / 2 - start;
+                bits[(int) (index >>> 6)] |= 1L << index;
+
+                m += WHEEL_GAPS[w];
+                if (++w == WHEEL_GAPS.length) w = 0;
+            }
+        }
+
+        // restrict to the sieved range (lower, upper]
+        long first = Math.max((this.lower + 1L) / 2 - start, 0);
+        long last = Math.min((this.upper - 1L) / 2 - start, this.segmentBits - 1L);
+
+        // count primes to allocate an exact-length array
+        int count = 0;
+        for (int w = (int) (first >>> 6); w <= (int) (last >>> 6); w++) {
+            count += Long.bitCount(~bits[w] & mask(w, first, last));
+        }
+
+        // compute the prime-powers
+        int[] primePowers = new int[count];
+        double limitLog = Math.log(this.upper);
+        for (int w = (int) (first >>> 6), i = 0; w <= (int) (last >>> 6); w++) {
+            for (long primes = ~bits[w] & mask(w, first, last); primes != 0; primes &= primes - 1) {
+                int n = (int) (2 * (start + (long) w * Long.SIZE + Long.numberOfTrailingZeros(primes)) + 1);
+                primePowers[i++] = LcmParitySourceGenerator.primePower(n, limitLog);
+            }
+        }
+        return primePowers;
+    }
+
+    /**
+     * Computes a mask of the bits of a word that are within the inclusive bit range [first, last]
+     *
+     * @param word  word index
+     * @param first first valid bit index
+     * @param last  last valid bit index
+     * @return word mask
+     */
+    private static long mask(int word, long first, long last) {
+        long mask = -1L;
+        if (word == (int) (first >>> 6)) mask &= -1L << first;
+        if (word == (int) (last >>> 6)) mask &= -1L >>> (Long.SIZE - 1 - (last & 63));
+        return mask;
+    }
+}
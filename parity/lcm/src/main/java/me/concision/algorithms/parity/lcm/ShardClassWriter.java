@@ -0,0 +1,252 @@
+package me.concision.algorithms.parity.lcm;
+
+import lombok.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
+/**
+ * Writes shard class files directly, without compiling a generated source with javac. A shard is a final class with a
+ * single {@code static final String[] CHUNKS} field that is initialized from string constants:
+ * <pre>
+ * final class ParityShard0 {
+ *     static final String[] CHUNKS = {"...", "..."};
+ * }
+ * </pre>
+ * The constant pool holds a fixed header of entries, followed by a CONSTANT_Utf8 entry per chunk and a CONSTANT_String
+ * entry per chunk. As the chunk entries are written in order between the header and the remainder of the class file,
+ * they are streamed by a {@link ProductEncoder} without materializing the class file.
+ *
+ * @author Concision
+ */
+public final class ShardClassWriter {
+    /**
+     * Maximum number of chunks of a shard, bounded by the 65535 byte code length of the static initializer, which
+     * takes 8 bytes per chunk
+     */
+    public static final int MAX_CHUNKS = 8000;
+
+    /**
+     * Class file version of Java 8
+     */
+    private static final int MAJOR_VERSION = 52;
+
+    /**
+     * Number of constant pool entries preceding the chunk entries, including the unused entry 0
+     */
+    private static final int HEADER_CONSTANTS = 14;
+
+    // constant pool indices of the header
+    private static final int THIS_CLASS = 2;
+    private static final int SUPER_CLASS = 4;
+    private static final int CHUNKS_NAME = 5;
+    private static final int CHUNKS_DESCRIPTOR = 6;
+    private static final int CLINIT_NAME = 7;
+    private static final int CLINIT_DESCRIPTOR = 8;
+    private static final int CODE = 9;
+    private static final int STRING_CLASS = 11;
+    private static final int CHUNKS_FIELD = 13;
+
+    // access flags
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    // instructions
+    private static final int DUP = 0x59;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int AASTORE = 0x53;
+    private static final int ANEWARRAY = 0xBD;
+    private static final int PUTSTATIC = 0xB3;
+    private static final int RETURN = 0xB1;
+
+    private ShardClassWriter() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Writes a shard class file of string chunks
+     *
+     * @param className binary name of the shard class, e.g. "me.concision.algorithms.parity.lcm.ParityShard0"
+     * @param chunks    string constants of the shard
+     * @return class file bytes
+     */
+    public static byte[] write(@NonNull String className, @NonNull String[] chunks) {
+        if (MAX_CHUNKS < chunks.length) throw new IllegalArgumentException("too many chunks: " + chunks.length);
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            bytes.write(header(className, chunks.length));
+            DataOutputStream output = new DataOutputStream(bytes);
+            for (String chunk : chunks) {
+                // modified UTF-8, as in class files
+                output.writeByte(1);
+                output.writeUTF(chunk);
+            }
+            output.flush();
+            bytes.write(trailer(chunks.length));
+            return bytes.toByteArray();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Streams a shard class file of a range of encoded product literals
+     *
+     * @param channel   channel to write to
+     * @param className binary name of the shard class
+     * @param encoder   product encoder
+     * @param from      inclusive start literal
+     * @param to        exclusive end literal
+     * @throws IOException if the channel cannot be written
+     */
+    static void write(@NonNull GatheringByteChannel channel, @NonNull String className, @NonNull ProductEncoder encoder, int from, int to) throws IOException {
+        if (MAX_CHUNKS < to - from) throw new IllegalArgumentException("too many chunks: " + (to - from));
+
+        write(channel, ByteBuffer.wrap(header(className, to - from)));
+        encoder.writeConstants(channel, from, to);
+        write(channel, ByteBuffer.wrap(trailer(to - from)));
+    }
+
+    /**
+     * Encodes the class file up to the chunk entries of the constant pool
+     *
+     * @param className binary name of the shard class
+     * @param chunks    number of chunks
+     * @return class file header
+     * @throws IOException never
+     */
+    private static byte[] header(String className, int chunks) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(0xCAFEBABE);
+        output.writeShort(0);
+        output.writeShort(MAJOR_VERSION);
+        output.writeShort(HEADER_CONSTANTS + 2 * chunks);
+
+        // 1, 2: this class
+        utf8(output, className.replace('.', '/'));
+        output.writeByte(7);
+        output.writeShort(1);
+        // 3, 4: super class
+        utf8(output, "java/lang/Object");
+        output.writeByte(7);
+        output.writeShort(3);
+        // 5 - 9: member names and descriptors
+        utf8(output, "CHUNKS");
+        utf8(output, "[Ljava/lang/String;");
+        utf8(output, "<clinit>");
+        utf8(output, "()V");
+        utf8(output, "Code");
+        // 10, 11: array component class
+        utf8(output, "java/lang/String");
+        output.writeByte(7);
+        output.writeShort(10);
+        // 12, 13: CHUNKS field reference
+        output.writeByte(12);
+        output.writeShort(CHUNKS_NAME);
+        output.writeShort(CHUNKS_DESCRIPTOR);
+        output.writeByte(9);
+        output.writeShort(THIS_CLASS);
+        output.writeShort(12);
+
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encodes the class file following the chunk entries of the constant pool
+     *
+     * @param chunks number of chunks
+     * @return class file trailer
+     * @throws IOException never
+     */
+    private static byte[] trailer(int chunks) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        // string constants of the chunk entries
+        for (int c = 0; c < chunks; c++) {
+            output.writeByte(8);
+            output.writeShort(HEADER_CONSTANTS + c);
+        }
+
+        output.writeShort(ACC_FINAL | ACC_SUPER);
+        output.writeShort(THIS_CLASS);
+        output.writeShort(SUPER_CLASS);
+        output.writeShort(0);
+
+        // static final String[] CHUNKS
+        output.writeShort(1);
+        output.writeShort(ACC_STATIC | ACC_FINAL);
+        output.writeShort(CHUNKS_NAME);
+        output.writeShort(CHUNKS_DESCRIPTOR);
+        output.writeShort(0);
+
+        // static {}
+        int codeLength = 3 + 3 + 8 * chunks + 3 + 1;
+        output.writeShort(1);
+        output.writeShort(ACC_STATIC);
+        output.writeShort(CLINIT_NAME);
+        output.writeShort(CLINIT_DESCRIPTOR);
+        output.writeShort(1);
+        output.writeShort(CODE);
+        output.writeInt(2 + 2 + 4 + codeLength + 2 + 2);
+        output.writeShort(4);
+        output.writeShort(0);
+        output.writeInt(codeLength);
+        output.writeByte(SIPUSH);
+        output.writeShort(chunks);
+        output.writeByte(ANEWARRAY);
+        output.writeShort(STRING_CLASS);
+        for (int c = 0; c < chunks; c++) {
+            output.writeByte(DUP);
+            output.writeByte(SIPUSH);
+            output.writeShort(c);
+            output.writeByte(LDC_W);
+            output.writeShort(HEADER_CONSTANTS + chunks + c);
+            output.writeByte(AASTORE);
+        }
+        output.writeByte(PUTSTATIC);
+        output.writeShort(CHUNKS_FIELD);
+        output.writeByte(RETURN);
+        output.writeShort(0);
+        output.writeShort(0);
+
+        // no class attributes
+        output.writeShort(0);
+
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes a CONSTANT_Utf8 entry
+     *
+     * @param output constant pool output
+     * @param value  entry value
+     * @throws IOException never
+     */
+    private static void utf8(DataOutputStream output, String value) throws IOException {
+        output.writeByte(1);
+        output.writeUTF(value);
+    }
+
+    /**
+     * Writes a buffer completely
+     *
+     * @param channel channel to write to
+     * @param buffer  buffer to write
+     * @throws IOException if the channel cannot be written
+     */
+    private static void write(GatheringByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package me.concision.algorithms.parity.lcm;
+
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.time.StopWatch;
+import org.apache.logging.log4j.core.util.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compiles generated shard classes in parallel. Each shard is compiled by its own forked javac with a bounded heap, as
+ * the memory javac needs grows with the size of the string constants of a source file; the total memory is bounded by
+ * the number of concurrent workers.
+ *
+ * @author Concision
+ */
+@Log4j2
+final class ShardCompiler {
+    /**
+     * Compiles shard sources
+     *
+     * @param sources shard source files
+     * @param output  compiled classes directory
+     * @param memory  maximum heap size of each javac, e.g. "256m"
+     * @param workers number of shards compiled concurrently
+     */
+    static void compile(@NonNull List<File> sources, @NonNull File output, @NonNull String memory, int workers) {
+        String javac = javac();
+        //noinspection ResultOfMethodCallIgnored
+        output.mkdirs();
+
+        AtomicInteger threadIds = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, workers), runnable -> {
+            Thread thread = new Thread(runnable, "shard-compiler-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> compilations = new ArrayList<>();
+            for (File source : sources) {
+                compilations.add(executor.submit(() -> {
+                    compile(javac, source, output, memory);
+                    return null;
+                }));
+            }
+            for (Future<?> compilation : compilations) {
+                compilation.get();
+            }
+        } catch (ExecutionException exception) {
+            throw new RuntimeException("failed to compile shards", exception.getCause());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted while compiling shards", exception);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Compiles a single shard source with a forked javac
+     *
+     * @param javac  javac executable
+     * @param source shard source file
+     * @param output compiled classes directory
+     * @param memory maximum heap size of javac
+     * @throws IOException          if javac cannot be started
+     * @throws InterruptedException if interrupted while waiting for javac
+     */
+    private static void compile(String javac, File source, File output, String memory) throws IOException, InterruptedException {
+        StopWatch watch = StopWatch.createStarted();
+        Process process = new ProcessBuilder(
+                javac,
+                "-J-Xmx" + memory,
+                "-nowarn",
+                "-source", "8",
+                "-target", "8",
+                "-encoding", "ISO-8859-1",
+                "-implicit:none",
+                "-d", output.getPath(),
+                source.getPath()
+        ).redirectErrorStream(true).start();
+        process.getOutputStream().close();
+
+        String diagnostics = IOUtils.toString(new InputStreamReader(process.getInputStream(), Charset.defaultCharset()));
+        int exit = process.waitFor();
+        if (exit != 0) {
+            throw new IllegalStateException("javac exited with " + exit + " while compiling " + source + ":\n" + diagnostics);
+        }
+        watch.stop();
+        log.info("Compiled {}; {} elapsed", source.getName(), watch.formatTime());
+    }
+
+    /**
+     * Locates javac of the running Java installation, falling back to javac on the path
+     *
+     * @return javac executable
+     */
+    private static String javac() {
+        String executable = System.getProperty("os.name", "").startsWith("Windows") ? "javac.exe" : "javac";
+        File home = new File(System.getProperty("java.home"));
+        // Java 8 runs from the JRE of a JDK
+        for (File directory : new File[]{home, home.getParentFile()}) {
+            File javac = new File(new File(directory, "bin"), executable);
+            if (javac.isFile()) return javac.getPath();
+        }
+        return executable;
+    }
+}
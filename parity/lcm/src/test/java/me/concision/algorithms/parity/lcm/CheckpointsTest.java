@@ -0,0 +1,132 @@
+package me.concision.algorithms.parity.lcm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Round-trips {@link Checkpoints} through their files. Declared in the generator package, as it is package-private.
+ */
+public class CheckpointsTest {
+    private static final String KEY = "limit=1000000";
+
+    @TempDir
+    File directory;
+
+    /**
+     * @return random ints, spanning several transfer buffers
+     */
+    private static int[] ints(Random random, int length) {
+        int[] ints = new int[length];
+        for (int i = 0; i < length; i++) {
+            ints[i] = random.nextInt();
+        }
+        return ints;
+    }
+
+    private File file(String name) {
+        return new File(this.directory, name + ".checkpoint");
+    }
+
+    @Test
+    public void primePowers() {
+        int[] primePowers = ints(new Random(), 300_000);
+        new Checkpoints(this.directory, KEY, 0).writePrimePowers(primePowers);
+        assertTrue(this.file("sieve").isFile(), "checkpoint was not written");
+        assertFalse(new File(this.directory, "sieve.checkpoint.tmp").exists(), "temporary file was not moved");
+
+        assertArrayEquals(primePowers, new Checkpoints(this.directory, KEY, 0).readPrimePowers(), "unexpected restored prime-powers");
+    }
+
+    @Test
+    public void leaves() {
+        Random random = new Random();
+        Natural[] leaves = new Natural[16];
+        for (int i = 0; i < leaves.length; i++) {
+            leaves[i] = Natural.valueOf(new BigInteger(i == 0 ? 1 << 24 : random.nextInt(1 << 16), random));
+        }
+        new Checkpoints(this.directory, KEY, 0).writeLeaves(leaves);
+
+        Natural[] restored = new Checkpoints(this.directory, KEY, 0).readLeaves();
+        assertNotNull(restored, "leaves were not restored");
+        assertEquals(leaves.length, restored.length);
+        for (int i = 0; i < leaves.length; i++) {
+            assertEquals(leaves[i].toBigInteger(), restored[i].toBigInteger(), "unexpected restored leaf " + i);
+        }
+    }
+
+    @Test
+    public void subtrees() {
+        Natural product = Natural.valueOf(new BigInteger(1 << 20, new Random()));
+        Checkpoints.Tree tree = new Checkpoints(this.directory, KEY, 1 << 10).tree(3);
+
+        // small subtrees are not checkpointed
+        tree.store(0, 2, 1 << 9, product);
+        assertNull(tree.restore(0, 2, 1 << 9), "unexpected checkpoint of a small subtree");
+        assertFalse(this.file("product-3-0-2").exists(), "unexpected checkpoint of a small subtree");
+
+        tree.store(0, 4, 1 << 20, product);
+        Natural restored = new Checkpoints(this.directory, KEY, 1 << 10).tree(3).restore(0, 4, 1 << 20);
+        assertNotNull(restored, "subtree was not restored");
+        assertEquals(product.toBigInteger(), restored.toBigInteger(), "unexpected restored subtree");
+        assertNull(new Checkpoints(this.directory, KEY, 1 << 10).tree(2).restore(0, 4, 1 << 20), "unexpected checkpoint of another product");
+
+        tree.discard(0, 4, 1 << 20);
+        assertFalse(this.file("product-3-0-4").exists(), "subtree checkpoint was not discarded");
+    }
+
+    @Test
+    public void otherComputation() {
+        new Checkpoints(this.directory, KEY, 0).writePrimePowers(new int[]{3, 5, 7});
+        assertNull(new Checkpoints(this.directory, "limit=2000000", 0).readPrimePowers(), "unexpected checkpoint of another computation");
+        assertFalse(this.file("sieve").exists(), "checkpoint of another computation was not deleted");
+    }
+
+    @Test
+    public void checksumMismatch() throws IOException {
+        int[] primePowers = ints(new Random(), 1 << 12);
+        new Checkpoints(this.directory, KEY, 0).writePrimePowers(primePowers);
+
+        // flip a bit of an element
+        try (RandomAccessFile file = new RandomAccessFile(this.file("sieve"), "rw")) {
+            long position = file.length() / 2;
+            file.seek(position);
+            int b = file.read();
+            file.seek(position);
+            file.write(b ^ 0x10);
+        }
+        assertNull(new Checkpoints(this.directory, KEY, 0).readPrimePowers(), "unexpected restored prime-powers of a corrupted checkpoint");
+        assertFalse(this.file("sieve").exists(), "corrupted checkpoint was not deleted");
+    }
+
+    @Test
+    public void truncated() throws IOException {
+        new Checkpoints(this.directory, KEY, 0).writePrimePowers(ints(new Random(), 1 << 12));
+        try (RandomAccessFile file = new RandomAccessFile(this.file("sieve"), "rw")) {
+            file.setLength(file.length() - Integer.BYTES - 1);
+        }
+        assertNull(new Checkpoints(this.directory, KEY, 0).readPrimePowers(), "unexpected restored prime-powers of a truncated checkpoint");
+        assertFalse(this.file("sieve").exists(), "truncated checkpoint was not deleted");
+    }
+
+    @Test
+    public void delete() {
+        Checkpoints checkpoints = new Checkpoints(new File(this.directory, "checkpoints"), KEY, 0);
+        checkpoints.writePrimePowers(new int[]{3, 5, 7});
+        checkpoints.delete();
+        assertFalse(new File(this.directory, "checkpoints").exists(), "checkpoint directory was not deleted");
+        assertNull(checkpoints.readPrimePowers(), "unexpected prime-powers after deletion");
+    }
+}
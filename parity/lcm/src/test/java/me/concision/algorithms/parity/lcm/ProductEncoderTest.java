@@ -0,0 +1,200 @@
+package me.concision.algorithms.parity.lcm;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Round-trips {@link ProductEncoder} literals through the {@link Parity.Decoder} of the generated class. Declared in the
+ * generator package, as both are package-private.
+ */
+public class ProductEncoderTest {
+    private static void test(BigInteger value) throws IOException {
+        byte[] product = value.toByteArray();
+
+        // class file constants
+        ProductEncoder encoder = new ProductEncoder(ByteBuffer.wrap(product));
+        BufferChannel channel = new BufferChannel();
+        encoder.writeConstants(channel, 0, encoder.literals());
+        assertArrayEquals(product, decode(constants(channel.toByteArray(), encoder)), "unexpected decoded constants of " + product.length + " bytes");
+
+        // source literals
+        channel = new BufferChannel();
+        encoder.write(channel);
+        assertArrayEquals(product, decode(literals(new String(channel.toByteArray(), StandardCharsets.UTF_8))), "unexpected decoded literals of " + product.length + " bytes");
+    }
+
+    /**
+     * Decodes chunks as Parity does
+     */
+    private static byte[] decode(String[] chunks) {
+        long[] offsets = new long[chunks.length];
+        long offset = 0;
+        for (int i = 0; i < chunks.length; i++) {
+            offsets[i] = offset;
+            offset += 7L * chunks[i].length();
+        }
+
+        byte[] buffer = new byte[(int) (offset / 8)];
+        Parity.Decoder decoder = new Parity.Decoder(chunks, offsets, buffer);
+        decoder.run();
+        decoder.await();
+        return buffer;
+    }
+
+    /**
+     * Parses CONSTANT_Utf8 entries; '\0' is encoded as 0xC0 0x80
+     */
+    private static String[] constants(byte[] bytes, ProductEncoder encoder) {
+        String[] chunks = new String[encoder.literals()];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        for (int i = 0; i < chunks.length; i++) {
+            assertEquals(1, buffer.get(), "unexpected constant tag");
+            int length = buffer.getShort() & 0xFFFF;
+            assertEquals(encoder.utf8Length(i), length, "unexpected constant length");
+
+            StringBuilder chunk = new StringBuilder();
+            for (int end = buffer.position() + length; buffer.position() < end; ) {
+                byte b = buffer.get();
+                if (b == (byte) 0xC0) {
+                    assertEquals((byte) 0x80, buffer.get(), "unexpected encoding of '\\0'");
+                    chunk.append('\0');
+                } else {
+                    chunk.append((char) b);
+                }
+            }
+            chunks[i] = chunk.toString();
+        }
+        assertEquals(bytes.length, buffer.position(), "unexpected trailing bytes");
+        return chunks;
+    }
+
+    /**
+     * Parses source lines of escaped string literals
+     */
+    private static String[] literals(String source) {
+        List<String> chunks = new ArrayList<>();
+        for (String line : source.split(System.lineSeparator())) {
+            line = line.trim();
+            if (line.endsWith(",")) line = line.substring(0, line.length() - 1);
+            assertTrue(line.startsWith("\"") && line.endsWith("\""), "unexpected literal: " + line);
+
+            StringBuilder chunk = new StringBuilder();
+            for (int i = 1; i < line.length() - 1; i++) {
+                char c = line.charAt(i);
+                if (c != '\\') {
+                    chunk.append(c);
+                    continue;
+                }
+                c = line.charAt(++i);
+                switch (c) {
+                    case 'u':
+                        chunk.append((char) Integer.parseInt(line.substring(i + 1, i + 5), 16));
+                        i += 4;
+                        break;
+                    case 'b':
+                        chunk.append('\b');
+                        break;
+                    case 'n':
+                        chunk.append('\n');
+                        break;
+                    case 'r':
+                        chunk.append('\r');
+                        break;
+                    case 't':
+                        chunk.append('\t');
+                        break;
+                    case 'f':
+                        chunk.append('\f');
+                        break;
+                    default:
+                        chunk.append(c);
+                }
+            }
+            chunks.add(chunk.toString());
+        }
+        return chunks.toArray(new String[0]);
+    }
+
+    @Test
+    public void smallProducts() throws IOException {
+        for (int n = 1; n < 1 << 10; n++) {
+            test(BigInteger.valueOf(n));
+        }
+    }
+
+    @Test
+    public void randomProducts() throws IOException {
+        Random random = new Random();
+        for (int i = 0; i < 16; i++) {
+            test(new BigInteger(random.nextInt(1 << 21), random));
+        }
+    }
+
+    @Test
+    public void zeroCharacters() throws IOException {
+        // runs of '\0' take 2 bytes each, which moves the literal boundaries
+        for (int bits = 1 << 16; bits <= 1 << 21; bits <<= 1) {
+            test(BigInteger.ONE.shiftLeft(bits));
+            test(BigInteger.ONE.shiftLeft(bits).add(BigInteger.ONE.shiftLeft(bits / 2)).add(BigInteger.ONE));
+        }
+    }
+
+    /**
+     * Channel that collects the written bytes
+     */
+    private static final class BufferChannel implements GatheringByteChannel {
+        /**
+         * Written bytes
+         */
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        @Override
+        public int write(ByteBuffer source) {
+            int remaining = source.remaining();
+            byte[] bytes = new byte[remaining];
+            source.get(bytes);
+            this.bytes.write(bytes, 0, remaining);
+            return remaining;
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources, int offset, int length) {
+            long written = 0;
+            for (int i = offset; i < offset + length; i++) {
+                written += this.write(sources[i]);
+            }
+            return written;
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources) {
+            return this.write(sources, 0, sources.length);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private byte[] toByteArray() {
+            return this.bytes.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package me.concision.algorithms.parity.lcm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Compares products extended from the cached products of a smaller limit with the products computed from scratch.
+ * Declared in the generator package, as the extension is package-private.
+ */
+public class ProductExtensionTest {
+    private static final Multiplier MULTIPLIER = Multiplier.threshold(Multiplier.named("karatsuba"), Multiplier.named("ntt"), 1 << 18);
+
+    @TempDir
+    File directory;
+
+    private static Natural product(int[] factors) {
+        return new ProductTree(factors, 1 << 20, MULTIPLIER).product();
+    }
+
+    private void test(int baseLimit, int limit, int products) throws IOException {
+        // cached products with the prime-powers dealt round-robin, such that the small primes are spread across products
+        int[] primePowers = LcmParitySourceGenerator.sieveOfEratosthenes(baseLimit);
+        ByteBuffer[] cached = new ByteBuffer[products];
+        for (int f = 0; f < products; f++) {
+            int product = f;
+            int[] factors = IntStream.range(0, primePowers.length).filter(i -> i % products == product).map(i -> primePowers[i]).toArray();
+            cached[f] = ByteBuffer.wrap(product(factors).toBigInteger().toByteArray());
+        }
+        ProductCache.write(new File(this.directory, String.valueOf(baseLimit)), baseLimit, products, cached);
+
+        ByteBuffer[] extended = LcmParitySourceGenerator.extendProducts(new File(this.directory, String.valueOf(limit)), limit, products, null);
+        assertNotNull(extended, "products of limit " + baseLimit + " were not extended");
+        assertEquals(products, extended.length, "unexpected number of extended products");
+        BigInteger[] values = new BigInteger[products];
+        for (int f = 0; f < products; f++) {
+            byte[] bytes = new byte[extended[f].remaining()];
+            extended[f].duplicate().get(bytes);
+            values[f] = new BigInteger(bytes);
+        }
+
+        // the assignment of prime-powers differs, but each small prime must be held by a single product
+        for (int p = 3; (long) p * p <= limit; p += 2) {
+            if (!BigInteger.valueOf(p).isProbablePrime(32)) continue;
+            int holders = 0;
+            for (BigInteger value : values) {
+                if (value.mod(BigInteger.valueOf(p)).signum() == 0) holders++;
+            }
+            assertEquals(1, holders, "unexpected number of extended products of limit " + limit + " divisible by " + p);
+        }
+
+        // the overall product is the LCM of the limit
+        Natural product = new ProductTree(Arrays.stream(values).map(Natural::valueOf).toArray(Natural[]::new), 1 << 20, MULTIPLIER).product();
+        assertEquals(
+                product(LcmParitySourceGenerator.sieveOfEratosthenes(limit)).toBigInteger(),
+                product.toBigInteger(),
+                "products extended from limit " + baseLimit + " differ from products of limit " + limit
+        );
+    }
+
+    @Test
+    public void newSmallPrimes() throws IOException {
+        // primes in (256, 1000] are new and have an exponent of 2
+        this.test(256, 1_000_000, 3);
+    }
+
+    @Test
+    public void raisedSmallPrimes() throws IOException {
+        // primes in (256, 4096] are cached with an exponent of 1 in arbitrary products
+        this.test(65536, 16777216, 2);
+    }
+}
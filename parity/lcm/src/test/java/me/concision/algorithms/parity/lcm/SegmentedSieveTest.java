@@ -0,0 +1,38 @@
+package me.concision.algorithms.parity.lcm;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Declared in the generator package, as the sieves are package-private
+ */
+public class SegmentedSieveTest {
+    private static void test(int limit, int segmentBytes) {
+        assertArrayEquals(
+                LcmParitySourceGenerator.sieveOfEratosthenes(limit),
+                new SegmentedSieve(1, limit, segmentBytes).primePowers(),
+                "unexpected prime-powers up to " + limit + " with segments of " + segmentBytes + " bytes"
+        );
+    }
+
+    @Test
+    public void smallLimits() {
+        for (int limit = 3; limit <= 1 << 12; limit++) {
+            test(limit, Long.BYTES);
+        }
+    }
+
+    @Test
+    public void segmentBoundaries() {
+        // limits on both sides of the wheel period, prime-powers, and segment boundaries
+        int[] limits = {105, 210, 3 * 3 * 3 * 3 * 3 * 3 * 3 * 3 * 3, 5 * 5 * 5 * 5 * 5 * 5, 65536, 65537, 1_000_000, 1_000_003};
+        for (int limit : limits) {
+            for (int segmentBytes : new int[]{Long.BYTES, 64, 1024, 256 * 1024}) {
+                test(limit - 1, segmentBytes);
+                test(limit, segmentBytes);
+                test(limit + 1, segmentBytes);
+            }
+        }
+    }
+}
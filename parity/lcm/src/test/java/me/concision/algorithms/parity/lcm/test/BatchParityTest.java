@@ -0,0 +1,97 @@
+package me.concision.algorithms.parity.lcm.test;
+
+import me.concision.algorithms.parity.lcm.Parity;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static me.concision.algorithms.parity.lcm.Parity.LIMIT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BatchParityTest {
+    @BeforeAll
+    public static void initialize() {
+        Parity.load();
+    }
+
+    private static void test(int[] values) {
+        boolean[] odd = Parity.isOdd(values);
+        boolean[] even = Parity.isEven(values);
+        assertEquals(values.length, odd.length);
+        assertEquals(values.length, even.length);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i] % 2 != 0, odd[i], "unexpected odd parity: " + values[i]);
+            assertEquals(values[i] % 2 == 0, even[i], "unexpected even parity: " + values[i]);
+        }
+    }
+
+    private static void test(long[] values) {
+        boolean[] odd = Parity.isOdd(values);
+        boolean[] even = Parity.isEven(values);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i] % 2L != 0L, odd[i], "unexpected odd parity: " + values[i]);
+            assertEquals(values[i] % 2L == 0L, even[i], "unexpected even parity: " + values[i]);
+        }
+    }
+
+    @Test
+    public void baseRange() {
+        int[] values = new int[16];
+        for (int n = -8; n < 8; n++) {
+            values[n + 8] = n;
+        }
+        test(values);
+        test(new int[0]);
+    }
+
+    @Test
+    public void randomValues() {
+        Random random = new Random();
+
+        // batches below and above the remainder tree threshold
+        for (int size = 1; size <= 1 << 12; size <<= 2) {
+            int[] values = new int[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = random.nextInt(LIMIT) * (random.nextBoolean() ? 1 : -1);
+            }
+            test(values);
+        }
+    }
+
+    @Test
+    public void partialLanes() {
+        Random random = new Random();
+
+        // batches that do not fill whole groups of divisors
+        for (int size = 1; size <= 32; size++) {
+            int[] values = new int[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = 1 + random.nextInt(LIMIT);
+            }
+            test(values);
+        }
+    }
+
+    @Test
+    public void duplicateValues() {
+        int[] values = new int[1024];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = LIMIT - i % 3;
+        }
+        test(values);
+    }
+
+    @Test
+    public void longValues() {
+        if (LIMIT == Integer.MAX_VALUE) {
+            Random random = new Random();
+
+            long[] values = new long[1024];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = random.nextLong();
+            }
+            test(values);
+        }
+    }
+}
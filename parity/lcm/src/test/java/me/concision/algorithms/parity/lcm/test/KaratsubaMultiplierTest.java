@@ -0,0 +1,72 @@
+package me.concision.algorithms.parity.lcm.test;
+
+import me.concision.algorithms.parity.lcm.KaratsubaMultiplier;
+import me.concision.algorithms.parity.lcm.Multiplier;
+import me.concision.algorithms.parity.lcm.Natural;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class KaratsubaMultiplierTest {
+    private static void test(Multiplier multiplier, BigInteger a, BigInteger b) {
+        assertEquals(a.multiply(b), multiplier.multiply(a, b), "unexpected product: " + a + " * " + b);
+    }
+
+    @Test
+    public void baseRange() {
+        Multiplier multiplier = KaratsubaMultiplier.INSTANCE;
+        for (int a = -8; a < 8; a++) {
+            for (int b = -8; b < 8; b++) {
+                test(multiplier, BigInteger.valueOf(a), BigInteger.valueOf(b));
+            }
+        }
+    }
+
+    @Test
+    public void randomValues() {
+        Multiplier multiplier = KaratsubaMultiplier.INSTANCE;
+        Random random = new Random();
+
+        for (int i = 0; i < 256; i++) {
+            // operands of very different lengths are multiplied in slices
+            BigInteger a = new BigInteger(random.nextInt(1 << 16), random);
+            test(multiplier, a, new BigInteger(random.nextInt(1 << 16), random));
+            test(multiplier, a, new BigInteger(random.nextInt(1 << 10), random));
+            test(multiplier, a, a);
+        }
+    }
+
+    @Test
+    public void maximumLimbs() {
+        Multiplier multiplier = KaratsubaMultiplier.INSTANCE;
+
+        // all limbs are at their maximum, which maximizes every carry
+        for (int bits = 32; bits <= 1 << 18; bits <<= 1) {
+            BigInteger ones = BigInteger.ONE.shiftLeft(bits).subtract(BigInteger.ONE);
+            test(multiplier, ones, ones);
+            test(multiplier, ones, ones.shiftRight(bits / 3));
+        }
+    }
+
+    @Test
+    public void reusedDestination() {
+        Random random = new Random();
+        Natural product = Natural.valueOf(BigInteger.ZERO);
+
+        // the destination is resized as necessary, and its previous value is discarded
+        for (int i = 0; i < 64; i++) {
+            BigInteger a = new BigInteger(random.nextInt(1 << 14), random);
+            BigInteger b = new BigInteger(random.nextInt(1 << 14), random);
+            Natural x = Natural.valueOf(a);
+            Natural y = Natural.valueOf(b);
+            KaratsubaMultiplier.INSTANCE.multiply(x, y, product);
+            assertEquals(a.multiply(b), product.toBigInteger());
+            x.release();
+            y.release();
+        }
+        product.release();
+    }
+}
@@ -0,0 +1,51 @@
+package me.concision.algorithms.parity.lcm.test;
+
+import me.concision.algorithms.parity.lcm.Parity;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static me.concision.algorithms.parity.lcm.Parity.LIMIT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class LoadingParityTest {
+    @Test
+    public void earlyAnswers() {
+        Random random = new Random();
+
+        // while loading, answers are either correct or the fallback, which is wrong here; the fallback is only used
+        // if the products were not yet loaded when the query was issued
+        Parity.loadAsync();
+        for (int i = 0; i < 1 << 8; i++) {
+            int n = random.nextInt(LIMIT);
+            boolean odd = n % 2 != 0;
+
+            Parity.State state = Parity.state();
+            if (Parity.isOdd(n, !odd) != odd) {
+                assertNotEquals(Parity.State.LOADED, state, "unexpected odd parity once loaded: " + n);
+            }
+            state = Parity.state();
+            if (Parity.isEven(n, odd) == odd) {
+                assertNotEquals(Parity.State.LOADED, state, "unexpected even parity once loaded: " + n);
+            }
+        }
+    }
+
+    @Test
+    public void loaded() {
+        Random random = new Random();
+
+        assertSame(Parity.loadAsync(), Parity.loadAsync());
+        Parity.load();
+        assertEquals(Parity.State.LOADED, Parity.state());
+
+        // once loaded, the fallback is never used
+        for (int i = 0; i < 1 << 8; i++) {
+            int n = random.nextInt(LIMIT);
+            assertEquals(n % 2 != 0, Parity.isOdd(n, n % 2 == 0), "unexpected odd parity: " + n);
+            assertEquals(n % 2 == 0, Parity.isEven(n, n % 2 != 0), "unexpected even parity: " + n);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package me.concision.algorithms.parity.lcm.test;
+
+import me.concision.algorithms.parity.lcm.Multiplier;
+import me.concision.algorithms.parity.lcm.NttMultiplier;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class NttMultiplierTest {
+    private static void test(Multiplier multiplier, BigInteger a, BigInteger b) {
+        assertEquals(a.multiply(b), multiplier.multiply(a, b), "unexpected product: " + a + " * " + b);
+    }
+
+    @Test
+    public void baseRange() {
+        Multiplier multiplier = new NttMultiplier();
+        for (int a = -8; a < 8; a++) {
+            for (int b = -8; b < 8; b++) {
+                test(multiplier, BigInteger.valueOf(a), BigInteger.valueOf(b));
+            }
+        }
+    }
+
+    @Test
+    public void randomValues() {
+        Multiplier multiplier = new NttMultiplier();
+        Random random = new Random();
+
+        for (int i = 0; i < 64; i++) {
+            BigInteger a = new BigInteger(random.nextInt(1 << 16), random);
+            test(multiplier, a, new BigInteger(random.nextInt(1 << 16), random));
+            test(multiplier, a, a);
+        }
+    }
+
+    @Test
+    public void maximumCoefficients() {
+        Multiplier multiplier = new NttMultiplier();
+
+        // all digits are at their maximum, which maximizes every convolution coefficient
+        for (int bits = 16; bits <= 1 << 20; bits <<= 2) {
+            BigInteger ones = BigInteger.ONE.shiftLeft(bits).subtract(BigInteger.ONE);
+            test(multiplier, ones, ones);
+        }
+    }
+
+    @Test
+    public void splitOperands() {
+        // products that exceed the transform length are split
+        Multiplier multiplier = new NttMultiplier(64);
+        Random random = new Random();
+
+        for (int i = 0; i < 64; i++) {
+            test(multiplier, new BigInteger(random.nextInt(1 << 12), random), new BigInteger(random.nextInt(1 << 12), random));
+        }
+    }
+
+    @Test
+    public void minimumTransformLength() {
+        // single limbs exceed the smallest transform length, and cannot be split
+        Multiplier multiplier = new NttMultiplier(2);
+        Random random = new Random();
+
+        for (int i = 0; i < 64; i++) {
+            test(multiplier, new BigInteger(random.nextInt(1 << 8), random), new BigInteger(random.nextInt(1 << 8), random));
+        }
+        BigInteger ones = BigInteger.ONE.shiftLeft(32).subtract(BigInteger.ONE);
+        test(multiplier, ones, ones);
+    }
+}
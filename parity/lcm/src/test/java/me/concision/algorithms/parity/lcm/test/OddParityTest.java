@@ -4,9 +4,10 @@ import me.concision.algorithms.parity.lcm.Parity;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.math.BigInteger;
 import java.util.Random;
 
-import static me.concision.algorithms.parity.lcm.LcmParitySourceGenerator.LIMIT;
+import static me.concision.algorithms.parity.lcm.Parity.LIMIT;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @SuppressWarnings("ConstantConditions")
@@ -41,6 +42,19 @@ public class OddParityTest {
         }
     }
 
+    @Test
+    public void splitComposites() {
+        // the prime-powers of a small odd factor and of a large prime may be in different products
+        for (int m = 1; m <= 15; m += 2) {
+            for (int q = LIMIT / m, primes = 0; primes < 4 && 2 < q; q--) {
+                if (BigInteger.valueOf(q).isProbablePrime(64)) {
+                    test((long) m * q);
+                    primes++;
+                }
+            }
+        }
+    }
+
     @Test
     public void randomValues() {
         Random random = new Random();
@@ -0,0 +1,165 @@
+package me.concision.algorithms.parity.lcm.test;
+
+import me.concision.algorithms.parity.lcm.Parity;
+import me.concision.algorithms.parity.lcm.ShardClassWriter;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+public class ShardClassWriterTest {
+    private static final String PACKAGE = "me.concision.algorithms.parity.lcm.test.shard";
+
+    @Test
+    public void matchesJavac() throws Exception {
+        Random random = new Random();
+
+        // 7-bit chunks as generated, with frequent '\0' characters, and a chunk of the maximum constant size
+        String[] chunks = new String[1 << 6];
+        for (int c = 0; c < chunks.length; c++) {
+            char[] characters = new char[c == 0 ? 0xFFFE : random.nextInt(1 << 10)];
+            for (int i = 0; i < characters.length; i++) {
+                characters[i] = (char) (c == 0 ? 1 + random.nextInt(127) : random.nextInt(8) == 0 ? 0 : random.nextInt(128));
+            }
+            chunks[c] = new String(characters);
+        }
+
+        Path directory = Files.createTempDirectory("shards");
+        try {
+            String[] emitted = chunks(new BytecodeLoader(PACKAGE + ".EmittedShard", ShardClassWriter.write(PACKAGE + ".EmittedShard", chunks)), PACKAGE + ".EmittedShard");
+            String[] compiled = chunks(compile(directory, "CompiledShard", chunks), PACKAGE + ".CompiledShard");
+            assertEquals(chunks.length, emitted.length);
+            assertArrayEquals(compiled, emitted, "emitted shard differs from compiled shard");
+            assertArrayEquals(chunks, emitted, "emitted shard differs from chunks");
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void queriesMatchJavac() throws Exception {
+        // shards of the build, whichever backend wrote them
+        Path classes = Paths.get(Parity.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        String packageName = Parity.class.getPackage().getName();
+        Path packageDirectory = classes.resolve(packageName.replace('.', File.separatorChar));
+        List<String> shards;
+        try (Stream<Path> files = Files.list(packageDirectory)) {
+            shards = files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.matches("ParityShard\\d+\\.class"))
+                    .map(name -> name.substring(0, name.length() - ".class".length()))
+                    .collect(Collectors.toList());
+        }
+        assumeFalse(shards.isEmpty(), "products are not packaged as shards");
+
+        Path directory = Files.createTempDirectory("shards");
+        try {
+            // rebuild every shard both as emitted bytecode and as javac output of its source
+            Path emitted = directory.resolve("emitted");
+            Path compiled = directory.resolve("compiled");
+            Files.createDirectories(emitted.resolve(packageName.replace('.', File.separatorChar)));
+            Path[] sources = new Path[shards.size()];
+            for (int s = 0; s < sources.length; s++) {
+                String className = packageName + "." + shards.get(s);
+                String[] chunks = chunks(Parity.class.getClassLoader(), className);
+                Files.write(emitted.resolve(className.replace('.', File.separatorChar) + ".class"), ShardClassWriter.write(className, chunks));
+                sources[s] = source(directory, packageName, shards.get(s), chunks);
+            }
+            compile(compiled, sources);
+
+            // load the template build of Parity against each set of shards
+            Method emittedIsOdd = isOdd(new URLClassLoader(new URL[]{emitted.toUri().toURL(), classes.toUri().toURL()}, null));
+            Method compiledIsOdd = isOdd(new URLClassLoader(new URL[]{compiled.toUri().toURL(), classes.toUri().toURL()}, null));
+
+            Random random = new Random();
+            for (int i = 0; i < 1 << 12; i++) {
+                long n = i < 1 << 8 ? Parity.LIMIT - i : 1 + random.nextInt(Parity.LIMIT);
+                boolean expected = (n & 1) == 1;
+                assertEquals(expected, compiledIsOdd.invoke(null, n), "unexpected javac-backed parity of " + n);
+                assertEquals(expected, emittedIsOdd.invoke(null, n), "unexpected bytecode-backed parity of " + n);
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            //noinspection ResultOfMethodCallIgnored
+            files.sorted((a, b) -> b.compareTo(a)).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private static Method isOdd(ClassLoader loader) throws ReflectiveOperationException {
+        return Class.forName(Parity.class.getName(), true, loader).getMethod("isOdd", long.class);
+    }
+
+    private static String[] chunks(ClassLoader loader, String className) throws ReflectiveOperationException {
+        Field field = Class.forName(className, true, loader).getDeclaredField("CHUNKS");
+        field.setAccessible(true);
+        return (String[]) field.get(null);
+    }
+
+    private static ClassLoader compile(Path directory, String simpleName, String[] chunks) throws IOException {
+        compile(directory, source(directory, PACKAGE, simpleName, chunks));
+        return new URLClassLoader(new URL[]{directory.toUri().toURL()}, null);
+    }
+
+    private static Path source(Path directory, String packageName, String simpleName, String[] chunks) throws IOException {
+        StringBuilder source = new StringBuilder("package " + packageName + ";\nfinal class " + simpleName + " {\n    static final String[] CHUNKS = {\n");
+        for (String chunk : chunks) {
+            source.append("\"");
+            for (int i = 0; i < chunk.length(); i++) {
+                source.append('\\').append(Integer.toOctalString(chunk.charAt(i)));
+            }
+            source.append("\",\n");
+        }
+        source.append("    };\n}\n");
+        Path file = directory.resolve(simpleName + ".java");
+        Files.write(file, source.toString().getBytes(StandardCharsets.US_ASCII));
+        return file;
+    }
+
+    private static void compile(Path directory, Path... sources) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertNotNull(compiler, "javac is unavailable");
+        Files.createDirectories(directory);
+        String[] arguments = Stream.concat(Stream.of("-nowarn", "-d", directory.toString()), Stream.of(sources).map(Path::toString)).toArray(String[]::new);
+        assertEquals(0, compiler.run(null, null, null, arguments), "failed to compile shards");
+    }
+
+    private static final class BytecodeLoader extends ClassLoader {
+        private final String className;
+        private final byte[] bytecode;
+
+        private BytecodeLoader(String className, byte[] bytecode) {
+            super(null);
+            this.className = className;
+            this.bytecode = bytecode;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            if (!name.equals(this.className)) throw new ClassNotFoundException(name);
+            return this.defineClass(name, this.bytecode, 0, this.bytecode.length);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package me.concision.algorithms.parity.lcm.test;
+
+import me.concision.algorithms.parity.lcm.Parity;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static me.concision.algorithms.parity.lcm.Parity.LIMIT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TieredParityTest {
+    @BeforeAll
+    public static void initialize() {
+        Parity.load();
+    }
+
+    private static void test(long n) {
+        assertEquals(n % 2L != 0L, Parity.isOdd(n), "unexpected odd parity: " + n);
+        assertEquals(n % 2L == 0L, Parity.isEven(n), "unexpected even parity: " + n);
+    }
+
+    // integers on both sides of each tier boundary
+    private static int[] boundaryValues() {
+        List<Integer> values = new ArrayList<>();
+        for (int limit : Parity.tierLimits()) {
+            for (long n = limit - 3L; n <= limit + 3L; n++) {
+                if (n <= LIMIT) {
+                    values.add((int) n);
+                    values.add((int) -n);
+                }
+            }
+
+            // the largest prime of the tier, and the smallest prime of the next tier
+            BigInteger prime = BigInteger.valueOf(limit);
+            while (!prime.isProbablePrime(64)) prime = prime.subtract(BigInteger.ONE);
+            values.add(prime.intValueExact());
+            prime = BigInteger.valueOf(limit).nextProbablePrime();
+            if (prime.compareTo(BigInteger.valueOf(LIMIT)) <= 0) values.add(prime.intValueExact());
+
+            // the largest prime-powers of the tier, and the prime-powers whose exponent exceeds the tier
+            for (int p = 3; p <= 7; p += 2) {
+                long power = p;
+                while (power * p <= limit) power *= p;
+                values.add((int) power);
+                if (power * p <= LIMIT) values.add((int) (power * p));
+            }
+        }
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Test
+    public void tierLimits() {
+        int[] limits = Parity.tierLimits();
+        for (int t = 1; t < limits.length; t++) {
+            assertTrue(limits[t - 1] < limits[t], "tier limits are not ascending");
+        }
+        assertEquals(LIMIT, limits[limits.length - 1]);
+    }
+
+    @Test
+    public void boundaries() {
+        for (int n : boundaryValues()) {
+            test(n);
+        }
+    }
+
+    @Test
+    public void batchBoundaries() {
+        int[] values = boundaryValues();
+        boolean[] odd = Parity.isOdd(values);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i] % 2 != 0, odd[i], "unexpected odd parity: " + values[i]);
+        }
+    }
+}